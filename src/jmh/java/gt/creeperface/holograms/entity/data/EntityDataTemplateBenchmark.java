@@ -0,0 +1,69 @@
+package gt.creeperface.holograms.entity.data;
+
+import cn.nukkit.entity.Entity;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Metadata of all lines of a spawned hologram, built per line as before and from the shared template
+ * Allocations per spawned hologram are reported with -prof gc
+ *
+ * @author CreeperFace
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EntityDataTemplateBenchmark {
+
+    private static final long FLAGS = (1L << Entity.DATA_FLAG_CAN_SHOW_NAMETAG) |
+            (1L << Entity.DATA_FLAG_ALWAYS_SHOW_NAMETAG) |
+            (1L << Entity.DATA_FLAG_IMMOBILE) |
+            (1L << Entity.DATA_FLAG_SILENT);
+
+    @Param({"5", "20"})
+    private int lineCount;
+
+    private String[] lines;
+
+    private EntityDataTemplate template;
+
+    @Setup
+    public void setup() {
+        lines = new String[lineCount];
+
+        for (int i = 0; i < lineCount; i++) {
+            lines[i] = "§a#" + (i + 1) + " §fPlayer" + i + " §7- §e" + (1000 - i * 7);
+        }
+
+        template = new EntityDataTemplate(createData());
+    }
+
+    @Benchmark
+    public void perLine(Blackhole blackhole) {
+        for (String line : lines) {
+            blackhole.consume(createData().putString(Entity.DATA_NAMETAG, line));
+        }
+    }
+
+    @Benchmark
+    public void template(Blackhole blackhole) {
+        for (String line : lines) {
+            blackhole.consume(template.create(line));
+        }
+    }
+
+    private static EntityData createData() {
+        return (EntityData) new EntityData()
+                .putLong(Entity.DATA_FLAGS, FLAGS)
+                .putFloat(Entity.DATA_BOUNDING_BOX_HEIGHT, 0)
+                .putFloat(Entity.DATA_BOUNDING_BOX_WIDTH, 0)
+                .putFloat(Entity.DATA_SCALE, 0f)
+                .putLong(Entity.DATA_LEAD_HOLDER_EID, -1)
+                .putByte(Entity.DATA_ALWAYS_SHOW_NAMETAG, 1);
+    }
+}
@@ -0,0 +1,83 @@
+package gt.creeperface.holograms.grid;
+
+import gt.creeperface.holograms.api.grid.source.GridRowBuffer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Layout of a 50 row leaderboard where some rows change between renders,
+ * laid out from scratch as before and by the layout memoized from the previous render
+ *
+ * @author CreeperFace
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GridLayoutBenchmark {
+
+    private static final int ROWS = 50;
+    private static final int COLUMN_SPACE = 20;
+
+    @Param({"0", "1", "50"})
+    private int changedRows;
+
+    private final String[] names = new String[ROWS];
+    private final int[] scores = new int[ROWS];
+    private final boolean[] unicode = new boolean[ROWS];
+
+    private GridLayout layout;
+    private int render = 0;
+
+    @Setup
+    public void setup() {
+        for (int i = 0; i < ROWS; i++) {
+            names[i] = "§f" + (i % 3 == 0 ? "xX_Creeper" + i + "_Xx" : "Steve" + i);
+            scores[i] = 100000 - i * 1337;
+        }
+
+        layout = new GridLayout();
+        fill(layout);
+        layout.layout(unicode, COLUMN_SPACE);
+    }
+
+    @Benchmark
+    public String[] full() {
+        GridLayout layout = new GridLayout();
+
+        nextRender();
+        fill(layout);
+
+        return layout.layout(unicode, COLUMN_SPACE);
+    }
+
+    @Benchmark
+    public String[] memoized() {
+        nextRender();
+        fill(layout);
+
+        return layout.layout(unicode, COLUMN_SPACE);
+    }
+
+    private void nextRender() {
+        for (int i = 0; i < changedRows; i++) {
+            scores[(render + i) % ROWS] += 7;
+        }
+
+        render++;
+    }
+
+    private void fill(GridLayout layout) {
+        GridRowBuffer rows = layout.nextRows();
+
+        for (int i = 0; i < ROWS; i++) {
+            rows.startRow();
+            rows.add("§7#" + (i + 1));
+            rows.add(names[i]);
+            rows.add("§e" + scores[i]);
+        }
+    }
+}
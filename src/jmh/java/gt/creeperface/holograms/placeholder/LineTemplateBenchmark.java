@@ -0,0 +1,78 @@
+package gt.creeperface.holograms.placeholder;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Rendering of a line with 3 to 5 placeholders by repeated String.replace as before and by a compiled template
+ *
+ * @author CreeperFace
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LineTemplateBenchmark {
+
+    private static final String[] PARTS = {"§6Online: ", " §7| §6TPS: ", " §7| §6Kills: ", " §7| §6Coins: ", " §7| §6Rank: ", ""};
+    private static final String[] NAMES = {"server_online", "server_tps", "player_kills", "player_coins", "player_rank"};
+    private static final String[] VALUES = {"127", "19.98", "1542", "88210", "§bDiamond"};
+
+    @Param({"3", "4", "5"})
+    private int placeholderCount;
+
+    private String line;
+    private List<MatchedPlaceholder> matched;
+    private LineTemplate template;
+
+    private Function<String, String> values;
+
+    private final StringBuilder builder = new StringBuilder(64);
+
+    @Setup
+    public void setup() {
+        StringBuilder line = new StringBuilder();
+        Map<String, String> values = new HashMap<>();
+        matched = new ArrayList<>(placeholderCount);
+
+        for (int i = 0; i < placeholderCount; i++) {
+            line.append(PARTS[i]);
+
+            String raw = "%" + NAMES[i] + "%";
+            matched.add(new MatchedPlaceholder(raw, NAMES[i], line.length(), line.length() + raw.length()) {
+            });
+            values.put(raw, VALUES[i]);
+
+            line.append(raw);
+        }
+
+        this.line = line.toString();
+        this.values = values::get;
+        this.template = LineTemplate.compile(this.line, matched);
+    }
+
+    @Benchmark
+    public String replace() {
+        String line = this.line;
+
+        for (MatchedPlaceholder placeholder : matched) {
+            String replacement = values.apply(placeholder.raw);
+
+            if (replacement != null) {
+                line = line.replace(placeholder.raw, replacement);
+            }
+        }
+
+        return line;
+    }
+
+    @Benchmark
+    public String template() {
+        return template.render(values, builder);
+    }
+}
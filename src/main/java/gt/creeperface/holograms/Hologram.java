@@ -7,7 +7,9 @@ import cn.nukkit.math.Vector3;
 import cn.nukkit.network.protocol.AddEntityPacket;
 import cn.nukkit.network.protocol.RemoveEntityPacket;
 import gt.creeperface.holograms.api.grid.source.GridSource;
+import gt.creeperface.holograms.api.placeholder.PlayerPlaceholderValues;
 import gt.creeperface.holograms.entity.HologramEntity;
+import gt.creeperface.holograms.grid.GridLayout;
 import gt.creeperface.holograms.placeholder.MatchedPlaceholder;
 import lombok.*;
 
@@ -21,15 +23,18 @@ public class Hologram implements gt.creeperface.holograms.api.Hologram {
 
     private final List<EntityEntry> spawnedEntities = new ArrayList<>();
 
-    private final List<HologramTranslation> translations = new ArrayList<>();
+    /**
+     * Immutable, replaced on every change so render workers always read a consistent state
+     */
+    private volatile List<HologramTranslation> translations;
     //private final List<HologramPage> pages = new ArrayList<>();
 
 //    private final List<PlaceholderAdapter.MatchedPlaceholder> placeholderMap = new ArrayList<>();
 
-    private final Set<MatchedPlaceholder> placeholders = new HashSet<>();
+    private volatile Set<MatchedPlaceholder> placeholders = Collections.emptySet();
 
     @Getter
-    private boolean visitorSensitive;
+    private volatile boolean visitorSensitive;
 
     @Getter
     private final String name;
@@ -40,16 +45,40 @@ public class Hologram implements gt.creeperface.holograms.api.Hologram {
     @Getter
     private GridSettings gridSettings;
 
+    /**
+     * Distance in blocks beyond which players see only the {@link LodMode} representation, -1 to disable
+     */
+    @Getter
+    @Setter
+    private double viewDistance = -1;
+
+    /**
+     * Distance in blocks beyond which viewers don't receive periodic refreshes, -1 to disable
+     */
+    @Getter
+    @Setter
+    private double refreshDistance = -1;
+
+    @Getter
+    @Setter
+    private LodMode lodMode = LodMode.HIDE;
+
+    //layouts of the last grid render per translation, used by the render worker
+    private final List<GridLayout> gridLayouts = new ArrayList<>();
+
     public Hologram(final String name, final List<List<String>> pages, GridSettings gridSettings) {
         this.name = name;
         this.gridSettings = gridSettings;
 
+        List<HologramTranslation> translations = new ArrayList<>(pages.size());
+
         for (List<String> trans : pages) {
             HologramTranslation translation = new HologramTranslation(trans);
 
-            this.translations.add(translation);
+            translations.add(translation);
         }
 
+        this.translations = Collections.unmodifiableList(translations);
         this.reloadActivePlaceholders();
     }
 
@@ -82,13 +111,13 @@ public class Hologram implements gt.creeperface.holograms.api.Hologram {
         return Holograms.getInstance().getPlaceholderAdapter().translatePlaceholders(this.placeholders);
     }
 
-    public Map<Long, Map<String, String>> updatePlayerPlaceholders(Entity entity) {
+    public PlayerPlaceholderValues updatePlayerPlaceholders(Entity entity) {
         return updatePlayerPlaceholders(entity.getViewers().values());
     }
 
-    public Map<Long, Map<String, String>> updatePlayerPlaceholders(final Collection<Player> players) {
+    public PlayerPlaceholderValues updatePlayerPlaceholders(final Collection<Player> players) {
         if (!isVisitorSensitive()) {
-            return new HashMap<>();
+            return PlayerPlaceholderValues.EMPTY;
         }
 
         return Holograms.getInstance().getPlaceholderAdapter().translatePlaceholders(this.placeholders, players);
@@ -104,8 +133,14 @@ public class Hologram implements gt.creeperface.holograms.api.Hologram {
     }
 
     public void removeEntity(HologramEntity entity) {
+        boolean removed;
+
         synchronized (this.spawnedEntities) {
-            this.spawnedEntities.remove(entity.getEntityEntry());
+            removed = this.spawnedEntities.remove(entity.getEntityEntry());
+        }
+
+        if (removed) {
+            Holograms.getInstance().hologramUpdater.releaseIds(this, entity.getEntityEntry());
         }
     }
 
@@ -114,18 +149,15 @@ public class Hologram implements gt.creeperface.holograms.api.Hologram {
     }
 
     public void despawnEntity(HologramEntity entity, Player... players) {
-        EntityEntry entry = entity.getEntityEntry();
-
-        synchronized (entry.removePackets) {
-            if (!entry.removePackets.isEmpty()) { //shouldn't this be async too?
-                Server.getInstance().batchPackets(players, entry.removePackets.toArray(new RemoveEntityPacket[0]));
-            }
+        if (players.length > 0) {
+            //removal has to follow the spawn packets which may be still queued
+            Holograms.getInstance().hologramUpdater.despawn(this, entity.getEntityEntry(), players);
         }
     }
 
     public void updatePos(HologramEntity entity) {
         EntityEntry entry = entity.getEntityEntry();
-        Holograms.getInstance().hologramUpdater.updatePos(entry, new Vector3(entity.x, entity.y, entity.z));
+        Holograms.getInstance().hologramUpdater.updatePos(this, entry, new Vector3(entity.x, entity.y, entity.z));
     }
 
     public void update(List<List<String>> translations) {
@@ -133,8 +165,12 @@ public class Hologram implements gt.creeperface.holograms.api.Hologram {
                 .map(HologramTranslation::new)
                 .collect(Collectors.toList());
 
-        this.translations.clear();
-        this.translations.addAll(hologramTranslations);
+        hologramTranslations.forEach(HologramTranslation::mapPlaceholders);
+
+        this.translations = Collections.unmodifiableList(hologramTranslations);
+        refreshActivePlaceholders();
+
+        Holograms.getInstance().hologramUpdater.invalidateCache(getName());
     }
 
     @Override
@@ -147,6 +183,18 @@ public class Hologram implements gt.creeperface.holograms.api.Hologram {
         return new ArrayList<>(this.translations);
     }
 
+    public synchronized GridLayout getGridLayout(int translation) {
+        while (gridLayouts.size() <= translation) {
+            gridLayouts.add(new GridLayout());
+        }
+
+        return gridLayouts.get(translation);
+    }
+
+    public List<HologramTranslation> getTranslationList() {
+        return this.translations;
+    }
+
     public List<List<List<MatchedPlaceholder>>> getTranslationPlaceholders() {
         return this.translations.stream().map(HologramTranslation::getPlaceholders).collect(Collectors.toList());
     }
@@ -159,22 +207,34 @@ public class Hologram implements gt.creeperface.holograms.api.Hologram {
         this.updateInterval = updateInterval;
 
         if (this.updateInterval > 0) {
-            Holograms.getInstance().updateHolograms.put(getName(), this);
+            Holograms.getInstance().getRefreshScheduler().schedule(this);
         } else {
-            Holograms.getInstance().updateHolograms.remove(getName());
+            Holograms.getInstance().getRefreshScheduler().unschedule(this);
         }
     }
 
+    /**
+     * Matches placeholders of all translations again, used once the placeholder adapter has changed
+     */
     @Override
     public void reloadActivePlaceholders() {
-        this.placeholders.clear();
+        this.translations.forEach(HologramTranslation::mapPlaceholders);
+        refreshActivePlaceholders();
+
+        Holograms.getInstance().hologramUpdater.invalidateCache(getName());
+    }
+
+    /**
+     * Collects placeholders already matched in the translations and registers their dependencies
+     */
+    private void refreshActivePlaceholders() {
+        Set<MatchedPlaceholder> placeholders = new HashSet<>();
 
-        this.translations.forEach(tr -> {
-            tr.mapPlaceholders();
-            this.placeholders.addAll(tr.getPlaceholders().stream().flatMap(Collection::stream).collect(Collectors.toList()));
-        });
+        this.translations.forEach(tr -> tr.getPlaceholders().forEach(placeholders::addAll));
 
-        this.visitorSensitive = Holograms.getInstance().getPlaceholderAdapter().containsVisitorSensitivePlaceholder(this.placeholders);
+        this.placeholders = placeholders;
+        this.visitorSensitive = Holograms.getInstance().getPlaceholderAdapter().containsVisitorSensitivePlaceholder(placeholders);
+        Holograms.getInstance().getPlaceholderDependencies().register(this);
     }
 
     @Override
@@ -182,6 +242,22 @@ public class Hologram implements gt.creeperface.holograms.api.Hologram {
         Holograms.getInstance().hologramUpdater.update(this, getRawTranslations(), getEntities(), false, players);
     }
 
+    public void updateEntity(HologramEntity entity, Player... players) {
+        Holograms.getInstance().hologramUpdater.update(this, getRawTranslations(), Collections.singletonList(entity.getEntityEntry()), false, players);
+    }
+
+    public boolean isLodEnabled() {
+        return viewDistance > 0 || refreshDistance > 0;
+    }
+
+    /**
+     * What players beyond the view distance see
+     */
+    public enum LodMode {
+        HIDE,
+        TITLE
+    }
+
     @RequiredArgsConstructor
     public static class EntityEntry {
 
@@ -192,16 +268,106 @@ public class Hologram implements gt.creeperface.holograms.api.Hologram {
         private Vector3 safePos;
 
         private final List<List<AddEntityPacket>> packets = new ArrayList<>();
+        private List<List<String>> packetLines = Collections.emptyList();
+        private Vector3 packetPos;
+        private long[] packetIds;
 
         private final List<RemoveEntityPacket> removePackets = new ArrayList<>();
 
-        public void cachePackets(List<List<AddEntityPacket>> packets) {
+        /**
+         * Entity IDs reserved for the lines, accessed only by the render worker of the hologram
+         */
+        @Getter
+        @Setter
+        private long[] reservedIds;
+
+        /**
+         * Last line texts sent to all viewers per translation, null means unknown
+         */
+        private String[][] sentLines = new String[0][];
+
+        public boolean isLineSent(int translation, int line, String text) {
+            return translation < sentLines.length && line < sentLines[translation].length && text.equals(sentLines[translation][line]);
+        }
+
+        public void setSentLine(int translation, int line, String text) {
+            if (translation >= sentLines.length) {
+                sentLines = Arrays.copyOf(sentLines, translation + 1);
+
+                for (int i = 0; i < sentLines.length; i++) {
+                    if (sentLines[i] == null) {
+                        sentLines[i] = new String[0];
+                    }
+                }
+            }
+
+            if (line >= sentLines[translation].length) {
+                sentLines[translation] = Arrays.copyOf(sentLines[translation], line + 1);
+            }
+
+            sentLines[translation][line] = text;
+        }
+
+        /**
+         * Forgets the last sent text if only some viewers received a different one
+         */
+        public void invalidateSentLine(int translation, int line, String text) {
+            if (translation < sentLines.length && line < sentLines[translation].length && !text.equals(sentLines[translation][line])) {
+                sentLines[translation][line] = null;
+            }
+        }
+
+        /**
+         * @return copy of the last texts sent to all viewers of the translation or null if any of the lines is unknown
+         */
+        public String[] getSentLines(int translation, int lineCount) {
+            if (translation >= sentLines.length || sentLines[translation].length < lineCount) {
+                return null;
+            }
+
+            String[] lines = Arrays.copyOf(sentLines[translation], lineCount);
+
+            for (String line : lines) {
+                if (line == null) {
+                    return null;
+                }
+            }
+
+            return lines;
+        }
+
+        public void clearSentLines() {
+            sentLines = new String[0][];
+        }
+
+        /**
+         * Encoded spawn packets are reused for every viewer until the rendered lines, position or entity IDs change
+         */
+        public void cachePackets(List<List<AddEntityPacket>> packets, List<List<String>> lines, Vector3 pos, long[] ids) {
             clearCachedPackets();
             this.packets.addAll(packets);
+            this.packetLines = lines;
+            this.packetPos = pos;
+            this.packetIds = ids;
+        }
+
+        public List<AddEntityPacket> getCachedPackets(int translation, List<String> lines, Vector3 pos, long[] ids) {
+            if (translation >= packets.size() || translation >= packetLines.size()) {
+                return null;
+            }
+
+            if (!Arrays.equals(ids, packetIds) || !pos.equals(packetPos) || !lines.equals(packetLines.get(translation))) {
+                return null;
+            }
+
+            return packets.get(translation);
         }
 
         public void clearCachedPackets() {
             this.packets.clear();
+            this.packetLines = Collections.emptyList();
+            this.packetPos = null;
+            this.packetIds = null;
         }
 
         public void cacheRemovedPackets(List<RemoveEntityPacket> packets) {
@@ -222,7 +388,9 @@ public class Hologram implements gt.creeperface.holograms.api.Hologram {
         }
 
         public List<RemoveEntityPacket> getRemovePackets() {
-            return new ArrayList<>(removePackets);
+            synchronized (removePackets) {
+                return new ArrayList<>(removePackets);
+            }
         }
 
         @Override
@@ -10,7 +10,7 @@ import lombok.Getter;
 @Getter
 public class HologramConfiguration extends SimpleConfig {
 
-    public static final int VERSION = 2;
+    public static final int VERSION = 3;
 
     @Path("lines_gaps")
     private double linesGaps;
@@ -18,9 +18,36 @@ public class HologramConfiguration extends SimpleConfig {
     @Path("async_batch")
     private boolean asyncBatch;
 
+    @Path("batch_cache_size")
+    private int batchCacheSize;
+
+    @Path("render_threads")
+    private int renderThreads;
+
+    @Path("async_placeholders")
+    private boolean asyncPlaceholders;
+
+    @Path("placeholder_cache_ttl")
+    private long placeholderCacheTtl;
+
+    @Path("lod_check_distance")
+    private double lodCheckDistance;
+
     @Path("save_interval")
     private int saveInterval;
 
+    @Path("refresh.adaptive")
+    private boolean adaptiveRefresh;
+
+    @Path("refresh.max_backoff")
+    private int refreshMaxBackoff;
+
+    @Path("dispatch.time_budget")
+    private double dispatchTimeBudget;
+
+    @Path("dispatch.byte_budget")
+    private long dispatchByteBudget;
+
     @Path("grid.col_separator")
     private String gridColumnSeparator;
 
@@ -1,25 +1,32 @@
 package gt.creeperface.holograms;
 
+import gt.creeperface.holograms.placeholder.LineTemplate;
 import gt.creeperface.holograms.placeholder.MatchedPlaceholder;
 import lombok.Getter;
-import lombok.RequiredArgsConstructor;
 
 import java.util.*;
 
 /**
+ * Lines of the translation are immutable, changed lines are published as a new translation
+ *
  * @author CreeperFace
  */
-
-@RequiredArgsConstructor
 public class HologramTranslation implements gt.creeperface.holograms.api.HologramTranslation {
 
     private final List<String> lines;
 
     @Getter
-    private final List<List<MatchedPlaceholder>> placeholders = new ArrayList<>();
+    private volatile List<List<MatchedPlaceholder>> placeholders = Collections.emptyList();
 
+    /**
+     * Lines compiled to literal and placeholder segments
+     */
     @Getter
-    private final Set<String> placeholderNames = new HashSet<>();
+    private volatile List<LineTemplate> templates = Collections.emptyList();
+
+    public HologramTranslation(List<String> lines) {
+        this.lines = Collections.unmodifiableList(new ArrayList<>(lines));
+    }
 
     public String getLine(int index) {
         return lines.get(index);
@@ -29,43 +36,22 @@ public class HologramTranslation implements gt.creeperface.holograms.api.Hologra
         return lines.size();
     }
 
-    public void addLine(int count) {
-        for (; count > 0; count--) {
-            lines.add("");
-        }
-    }
-
-    public void addLines(Collection<String> l) {
-        lines.addAll(l);
-    }
-
-    public void setLines(Collection<String> l) {
-        lines.clear();
-        lines.addAll(l);
-    }
-
-    public void removeLine(int count) {
-        for (; count > 0; count--) {
-            lines.remove(lines.size() - 1);
-        }
-    }
-
     public List<String> getLines() {
         return new ArrayList<>(lines);
     }
 
     public void mapPlaceholders() {
-        this.placeholders.clear();
-        this.placeholderNames.clear();
+        List<List<MatchedPlaceholder>> matched = new ArrayList<>(this.lines.size());
+        List<LineTemplate> templates = new ArrayList<>(this.lines.size());
 
         for (String line : this.lines) {
             List<MatchedPlaceholder> placeholders = Holograms.getInstance().getPlaceholderAdapter().matchPlaceholders(line);
 
-            for (MatchedPlaceholder p : placeholders) {
-                this.placeholderNames.add(p.name);
-            }
-
-            this.placeholders.add(placeholders);
+            matched.add(placeholders);
+            templates.add(LineTemplate.compile(line, placeholders));
         }
+
+        this.placeholders = matched;
+        this.templates = Collections.unmodifiableList(templates);
     }
 }
@@ -5,13 +5,13 @@ import cn.nukkit.Player;
 import cn.nukkit.Server;
 import cn.nukkit.entity.Entity;
 import cn.nukkit.event.EventHandler;
+import cn.nukkit.event.EventPriority;
 import cn.nukkit.event.Listener;
 import cn.nukkit.event.player.PlayerFormRespondedEvent;
+import cn.nukkit.event.player.PlayerMoveEvent;
 import cn.nukkit.event.player.PlayerQuitEvent;
 import cn.nukkit.form.response.FormResponse;
-import cn.nukkit.level.Level;
 import cn.nukkit.permission.Permission;
-import cn.nukkit.scheduler.Task;
 import cn.nukkit.utils.Config;
 import cn.nukkit.utils.ConfigSection;
 import cn.nukkit.utils.MainLogger;
@@ -20,6 +20,8 @@ import gt.creeperface.holograms.api.grid.source.GridSource;
 import gt.creeperface.holograms.api.placeholder.PlaceholderAdapter;
 import gt.creeperface.holograms.command.HologramCommand;
 import gt.creeperface.holograms.entity.HologramEntity;
+import gt.creeperface.holograms.entity.HologramEntityIndex;
+import gt.creeperface.holograms.entity.HologramLodTracker;
 import gt.creeperface.holograms.form.FormWindowHandler;
 import gt.creeperface.holograms.form.FormWindowManager;
 import gt.creeperface.holograms.grid.CharactersTable;
@@ -30,7 +32,9 @@ import gt.creeperface.holograms.grid.source.PlaceholderGridSource;
 import gt.creeperface.holograms.placeholder.DefaultPlaceholderAdapter;
 import gt.creeperface.holograms.placeholder.MatchedPlaceholder;
 import gt.creeperface.holograms.placeholder.PlaceholderAPIAdapter;
+import gt.creeperface.holograms.placeholder.PlaceholderDependencies;
 import gt.creeperface.holograms.task.HologramUpdater;
+import gt.creeperface.holograms.task.RefreshScheduler;
 import gt.creeperface.holograms.util.Values;
 import lombok.Getter;
 import lombok.Setter;
@@ -55,7 +59,6 @@ public class Holograms extends HologramAPI implements Listener {
     private final Object hologramLock = new Object();
 
     protected Map<String, Hologram> holograms = new HashMap<>();
-    protected Map<String, Hologram> updateHolograms = new HashMap<>();
 
     public Map<Long, HologramEntity> editors = new HashMap<>();
 
@@ -69,8 +72,21 @@ public class Holograms extends HologramAPI implements Listener {
     @Getter
     private final FormWindowHandler handler = new FormWindowHandler(this);
 
+    @Getter
     protected final HologramUpdater hologramUpdater = new HologramUpdater(this);
 
+    @Getter
+    private final HologramEntityIndex entityIndex = new HologramEntityIndex();
+
+    @Getter
+    private HologramLodTracker lodTracker;
+
+    @Getter
+    private final PlaceholderDependencies placeholderDependencies = new PlaceholderDependencies();
+
+    @Getter
+    private RefreshScheduler refreshScheduler;
+
     @Getter
     private HologramConfiguration configuration;
 
@@ -101,6 +117,7 @@ public class Holograms extends HologramAPI implements Listener {
         getLogger().info("Loading config...");
         checkConfig();
         this.configuration = new HologramConfiguration(this);
+        this.lodTracker = new HologramLodTracker(this.configuration.getLodCheckDistance());
 
         saveResource("holograms.yml");
         path = new File(getDataFolder(), "holograms.yml");
@@ -126,18 +143,8 @@ public class Holograms extends HologramAPI implements Listener {
                 this.configuration.getSaveInterval() * 60 * 20
         );
 
-        getServer().getScheduler().scheduleRepeatingTask(this, new Task() {
-            @Override
-            public void onRun(int tick) {
-                for (Hologram hologram : updateHolograms.values()) {
-                    int interval = hologram.getUpdateInterval();
-
-                    if (tick % interval == 0) {
-                        hologramUpdater.update(hologram, hologram.getRawTranslations(), hologram.getEntities(), false);
-                    }
-                }
-            }
-        }, 1);
+        this.refreshScheduler = new RefreshScheduler(this, this.configuration.isAdaptiveRefresh(), this.configuration.getRefreshMaxBackoff());
+        getServer().getScheduler().scheduleRepeatingTask(this, this.refreshScheduler, 1);
 
         getLogger().info("Loading holograms");
         reloadHolograms();
@@ -151,8 +158,8 @@ public class Holograms extends HologramAPI implements Listener {
     public void onDisable() {
         saveHolograms(false);
 
-        if (hologramUpdater.isAlive()) {
-            hologramUpdater.interrupt();
+        if (hologramUpdater.isRunning()) {
+            hologramUpdater.shutdown();
         }
     }
 
@@ -165,6 +172,9 @@ public class Holograms extends HologramAPI implements Listener {
             for (Hologram hologram : this.holograms.values()) {
                 ConfigSection hl = new ConfigSection();
                 hl.set("update", hologram.getUpdateInterval());
+                hl.set("view_distance", hologram.getViewDistance());
+                hl.set("refresh_distance", hologram.getRefreshDistance());
+                hl.set("lod", hologram.getLodMode().name().toLowerCase());
                 hl.set("data", hologram.getRawTranslations());
 
                 Hologram.GridSettings grid = hologram.getGridSettings();
@@ -229,6 +239,9 @@ public class Holograms extends HologramAPI implements Listener {
                 String gridSource = section.getString("grid_source", "");
                 boolean gridHeader = section.getBoolean("grid_header", false);
                 boolean normalize = section.getBoolean("grid_normalize", false);
+                double viewDistance = section.getDouble("view_distance", -1);
+                double refreshDistance = section.getDouble("refresh_distance", -1);
+                String lodMode = section.getString("lod", "hide");
 
                 checkLineCount(trans, id);
 
@@ -246,6 +259,14 @@ public class Holograms extends HologramAPI implements Listener {
 
                 Hologram hologram = new Hologram(id, trans, new Hologram.GridSettings(grid, normalize, getGridSource(gridSource), gridColSpace, gridHeader, templates));
                 hologram.setUpdateInterval(updateInterval);
+                hologram.setViewDistance(viewDistance);
+                hologram.setRefreshDistance(refreshDistance);
+
+                try {
+                    hologram.setLodMode(Hologram.LodMode.valueOf(lodMode.toUpperCase()));
+                } catch (IllegalArgumentException e) {
+                    getLogger().warning("Unknown lod mode '" + lodMode + "' in hologram '" + id + "'");
+                }
 
                 map.put(id, hologram);
             }
@@ -333,6 +354,19 @@ public class Holograms extends HologramAPI implements Listener {
         Player p = e.getPlayer();
 
         editors.remove(p.getId());
+        lodTracker.remove(p);
+
+        //the player is not despawned from entities when leaving
+        for (HologramEntity entity : entityIndex.getViewed(p)) {
+            entity.forgetViewer(p);
+        }
+
+        entityIndex.removeViewer(p);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onMove(PlayerMoveEvent e) {
+        lodTracker.onMove(e.getPlayer(), e.getTo());
     }
 
     /**
@@ -342,12 +376,31 @@ public class Holograms extends HologramAPI implements Listener {
      * @param p player which has changed their language
      */
     public void onLanguageChanged(Player p) {
-        for (Entity entity : p.getLevel().getEntities()) {
-            if (entity instanceof HologramEntity && entity.getViewers().containsKey(p.getLoaderId())) {
-                HologramEntity hologramEntity = (HologramEntity) entity;
+        this.hologramUpdater.changeLanguage(p, entityIndex.getViewed(p));
+    }
 
-                this.hologramUpdater.update(hologramEntity.getHologram(), hologramEntity.getHologram().getRawTranslations(), Collections.singletonList(hologramEntity.getEntityEntry()), false, p);
+    /**
+     * Marks lines of holograms using the placeholder dirty after its value has changed
+     *
+     * @param name   placeholder name
+     * @param player visitor whose value has changed, null if the value is global
+     */
+    public void onPlaceholderChanged(String name, Player player) {
+        if (!getServer().isPrimaryThread()) {
+            getServer().getScheduler().scheduleTask(this, () -> onPlaceholderChanged(name, player));
+            return;
+        }
+
+        for (PlaceholderDependencies.Dependency dependency : placeholderDependencies.getDependents(name)) {
+            Hologram hologram = dependency.getHologram();
+
+            //removed or reloaded hologram
+            if (this.holograms.get(hologram.getName()) != hologram) {
+                continue;
             }
+
+            //rendered by the refresh scheduler, so the update interval of the hologram is kept
+            this.refreshScheduler.markDirty(hologram, dependency.getLines(), player);
         }
     }
 
@@ -362,29 +415,15 @@ public class Holograms extends HologramAPI implements Listener {
                 spawn = false;
             }
 
+            //placeholders of the new lines are matched and registered by the update
             hologram.update(lines);
-            hologram.reloadActivePlaceholders();
 
             this.hologramUpdater.update(hologram, old, getEntitiesByHologram(id).stream().map(HologramEntity::getEntityEntry).collect(Collectors.toList()), spawn);
         }
     }
 
     public HologramEntity findNearEntity(Player center) {
-        double distance = Long.MAX_VALUE;
-        Entity near = null;
-
-        for (Entity find : center.getLevel().getEntities()) {
-            if (find instanceof HologramEntity) {
-                double dist = center.distanceSquared(find);
-
-                if (near == null || dist < distance) {
-                    distance = dist;
-                    near = find;
-                }
-            }
-        }
-
-        return (HologramEntity) near;
+        return entityIndex.findNearest(center);
     }
 
     public Hologram getHologram(String id) {
@@ -392,21 +431,7 @@ public class Holograms extends HologramAPI implements Listener {
     }
 
     private Collection<HologramEntity> getEntitiesByHologram(String hologram) {
-        List<HologramEntity> entities = new ArrayList<>();
-
-        for (Level level : getServer().getLevels().values()) {
-            for (Entity entity : level.getEntities()) {
-                if (entity instanceof HologramEntity) {
-
-                    HologramEntity hologramEntity = (HologramEntity) entity;
-                    if (hologramEntity.getHologramId().equals(hologram)) {
-                        entities.add(hologramEntity);
-                    }
-                }
-            }
-        }
-
-        return entities;
+        return entityIndex.getByHologram(hologram);
     }
 
     @Override
@@ -599,9 +624,10 @@ public class Holograms extends HologramAPI implements Listener {
 
         if (checkConfigSection(cfg.getRootSection(), latest.getRootSection())) {
             getLogger().info("Updating config.yml...");
-            cfg.set("version", HologramConfiguration.VERSION);
-            cfg.save();
         }
+
+        cfg.set("version", HologramConfiguration.VERSION);
+        cfg.save();
     }
 
     private boolean checkConfigSection(ConfigSection cfg, Map<String, Object> data) {
@@ -613,10 +639,11 @@ public class Holograms extends HologramAPI implements Listener {
 
             Object cfgVal = cfg.get(key);
 
-            if (!(cfgVal instanceof ConfigSection)) {
+            //values set by the user are kept, only missing keys are added
+            if (cfgVal == null) {
                 cfg.set(key, val);
                 change = true;
-            } else if (val instanceof ConfigSection) {
+            } else if (cfgVal instanceof ConfigSection && val instanceof ConfigSection) {
                 if (checkConfigSection((ConfigSection) cfgVal, ((ConfigSection) val).getAll())) {
                     change = true;
                 }
@@ -0,0 +1,85 @@
+package gt.creeperface.holograms.api.grid.source;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Reusable buffer of grid rows, cells of all rows are stored in a single array
+ * and row boundaries in an offset array, so filling a cleared buffer doesn't allocate once it has grown
+ *
+ * @author CreeperFace
+ */
+public class GridRowBuffer {
+
+    private String[] cells = new String[64];
+
+    //rowStarts[row] is index of the first cell of the row, rowStarts[rowCount] is the cell count
+    private int[] rowStarts = new int[17];
+
+    private int rowCount = 0;
+    private int cellCount = 0;
+
+    public void clear() {
+        Arrays.fill(cells, 0, cellCount, null);
+
+        rowCount = 0;
+        cellCount = 0;
+    }
+
+    /**
+     * Starts a new row, following cells are added to it
+     */
+    public void startRow() {
+        if (rowCount + 2 > rowStarts.length) {
+            rowStarts = Arrays.copyOf(rowStarts, rowStarts.length * 2);
+        }
+
+        rowCount++;
+        rowStarts[rowCount] = cellCount;
+    }
+
+    /**
+     * Adds cell to the current row
+     */
+    public void add(Object cell) {
+        if (rowCount == 0) {
+            startRow();
+        }
+
+        if (cellCount == cells.length) {
+            cells = Arrays.copyOf(cells, cells.length * 2);
+        }
+
+        cells[cellCount++] = Objects.toString(cell);
+        rowStarts[rowCount] = cellCount;
+    }
+
+    public void addRow(List<?> row) {
+        startRow();
+
+        if (row == null) {
+            return;
+        }
+
+        for (int i = 0; i < row.size(); i++) {
+            add(row.get(i));
+        }
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getCellCount(int row) {
+        return rowStarts[row + 1] - rowStarts[row];
+    }
+
+    public String get(int row, int column) {
+        return cells[rowStarts[row] + column];
+    }
+
+    public void set(int row, int column, String value) {
+        cells[rowStarts[row] + column] = value;
+    }
+}
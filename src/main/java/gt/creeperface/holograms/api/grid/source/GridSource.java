@@ -29,6 +29,18 @@ public interface GridSource<T> {
 
     List<T> nextRow();
 
+    /**
+     * Reads all remaining rows to the buffer without creating intermediate lists
+     * Should be called between {@link #startReading()} and {@link #stopReading()}
+     *
+     * @param buffer rows are appended to the buffer
+     */
+    default void readRows(GridRowBuffer buffer) {
+        while (hasNextRow()) {
+            buffer.addRow(nextRow());
+        }
+    }
+
     boolean hasNextColumn();
 
     String nextColumn();
@@ -12,7 +12,10 @@ import java.util.Map;
  */
 public interface PlaceholderAdapter<T extends MatchedPlaceholder> {
 
-    Map<Long, Map<String, String>> translatePlaceholders(Collection<T> placeholders, Collection<Player> players);
+    /**
+     * Resolves visitor sensitive placeholders for all players
+     */
+    PlayerPlaceholderValues translatePlaceholders(Collection<T> placeholders, Collection<Player> players);
 
     Map<String, String> translatePlaceholders(Collection<T> placeholders);
 
@@ -26,5 +29,12 @@ public interface PlaceholderAdapter<T extends MatchedPlaceholder> {
 
     List<T> matchPlaceholders(String text);
 
+    /**
+     * @return true if placeholders and languages can be resolved outside of the main thread
+     */
+    default boolean isThreadSafe() {
+        return false;
+    }
+
 //    String replaceString(String input, List<MatchedPlaceholder> matched);
 }
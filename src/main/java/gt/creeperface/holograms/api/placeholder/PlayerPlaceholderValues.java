@@ -0,0 +1,163 @@
+package gt.creeperface.holograms.api.placeholder;
+
+import cn.nukkit.Player;
+import it.unimi.dsi.fastutil.longs.Long2IntMap;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Resolved visitor sensitive placeholders of a hologram stored as a player x placeholder table
+ *
+ * @author CreeperFace
+ */
+public class PlayerPlaceholderValues {
+
+    public static final PlayerPlaceholderValues EMPTY = new PlayerPlaceholderValues(new String[0], new long[0]);
+
+    private final String[] placeholders;
+    private final long[] players;
+
+    private final Long2IntMap rows;
+
+    //row-major values, row per player and column per placeholder
+    private final String[] values;
+
+    /**
+     * Creates an empty table, values are filled by {@link #set(int, int, String)}
+     *
+     * @param placeholders raw placeholder texts, one column per placeholder
+     * @param players      players in the order of the rows
+     */
+    public PlayerPlaceholderValues(String[] placeholders, Collection<Player> players) {
+        this(placeholders, players.stream().mapToLong(Player::getId).toArray());
+    }
+
+    private PlayerPlaceholderValues(String[] placeholders, long[] players) {
+        this.placeholders = placeholders;
+        this.players = players;
+        this.values = new String[placeholders.length * players.length];
+
+        this.rows = new Long2IntOpenHashMap(players.length);
+        this.rows.defaultReturnValue(-1);
+
+        for (int i = 0; i < players.length; i++) {
+            this.rows.put(players[i], i);
+        }
+    }
+
+    /**
+     * @return row of the player or -1 if there are no values for the player
+     */
+    public int getRow(long playerId) {
+        return rows.get(playerId);
+    }
+
+    /**
+     * @param placeholder raw placeholder text
+     * @return column of the placeholder or -1 if the placeholder isn't visitor sensitive
+     */
+    public int getColumn(String placeholder) {
+        for (int i = 0; i < placeholders.length; i++) {
+            if (placeholders[i].equals(placeholder)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    public String get(int row, int column) {
+        return values[row * placeholders.length + column];
+    }
+
+    public String get(int row, String placeholder) {
+        int column = getColumn(placeholder);
+
+        return column >= 0 ? get(row, column) : null;
+    }
+
+    /**
+     * @param row    row of the player, players are stored in the order passed to the constructor
+     * @param column index of the placeholder in the array passed to the constructor
+     */
+    public void set(int row, int column, String value) {
+        values[row * placeholders.length + column] = value;
+    }
+
+    public int getRowCount() {
+        return players.length;
+    }
+
+    public int getColumnCount() {
+        return placeholders.length;
+    }
+
+    public boolean isEmpty() {
+        return values.length == 0;
+    }
+
+    /**
+     * @return hash of all values resolved for the player
+     */
+    public int rowHash(int row) {
+        int hash = 1;
+        int start = row * placeholders.length;
+
+        for (int i = start; i < start + placeholders.length; i++) {
+            hash = 31 * hash + (values[i] == null ? 0 : values[i].hashCode());
+        }
+
+        return hash;
+    }
+
+    /**
+     * @return true if both players resolved the same values
+     */
+    public boolean rowEquals(int row, int another) {
+        int start = row * placeholders.length;
+        int anotherStart = another * placeholders.length;
+
+        for (int i = 0; i < placeholders.length; i++) {
+            String value = values[start + i];
+            String anotherValue = values[anotherStart + i];
+
+            if (value == null ? anotherValue != null : !value.equals(anotherValue)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Combines values of both tables, values of the newer table take precedence
+     *
+     * @param newer values resolved later
+     * @return merged table with columns of the newer table
+     */
+    public PlayerPlaceholderValues merge(PlayerPlaceholderValues newer) {
+        long[] players = Arrays.copyOf(newer.players, newer.players.length + this.players.length);
+        int count = newer.players.length;
+
+        for (long player : this.players) {
+            if (newer.getRow(player) < 0) {
+                players[count++] = player;
+            }
+        }
+
+        PlayerPlaceholderValues merged = new PlayerPlaceholderValues(newer.placeholders, Arrays.copyOf(players, count));
+        System.arraycopy(newer.values, 0, merged.values, 0, newer.values.length);
+
+        for (int row = newer.players.length; row < count; row++) {
+            int oldRow = this.getRow(players[row]);
+
+            for (int column = 0; column < merged.placeholders.length; column++) {
+                merged.set(row, column, this.get(oldRow, merged.placeholders[column]));
+            }
+        }
+
+        return merged;
+    }
+}
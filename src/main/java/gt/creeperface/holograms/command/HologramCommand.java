@@ -14,8 +14,18 @@ import cn.nukkit.utils.TextFormat;
 import gt.creeperface.holograms.Hologram;
 import gt.creeperface.holograms.Holograms;
 import gt.creeperface.holograms.entity.HologramEntity;
+import gt.creeperface.holograms.grid.GridFormatter;
+import gt.creeperface.holograms.grid.NormalizationCache;
+import gt.creeperface.holograms.placeholder.PlaceholderAPIAdapter;
+import gt.creeperface.holograms.placeholder.PlaceholderCache;
+import gt.creeperface.holograms.task.BatchCache;
+import gt.creeperface.holograms.task.HologramUpdater;
+import gt.creeperface.holograms.task.PacketDispatcher;
+import gt.creeperface.holograms.task.RefreshScheduler;
+import gt.creeperface.holograms.task.RenderWorker;
 
 import java.util.ArrayList;
+import java.util.List;
 
 /**
  * @author CreeperFace
@@ -37,7 +47,7 @@ public class HologramCommand extends Command {
                 });
         this.commandParameters.put("modify",
                 new CommandParameter[]{
-                        new CommandParameter("hologram action", false, new String[]{"edit", "update"})
+                        new CommandParameter("hologram action", false, new String[]{"edit", "update", "stats", "refresh"})
                 });
     }
 
@@ -51,6 +61,16 @@ public class HologramCommand extends Command {
             return false;
         }
 
+        if (args[0].equalsIgnoreCase("stats")) {
+            sendStats(sender);
+            return true;
+        }
+
+        if (args[0].equalsIgnoreCase("refresh")) {
+            sendRefreshStates(sender);
+            return true;
+        }
+
         if (!(sender instanceof Player)) {
             return true;
         }
@@ -105,4 +125,60 @@ public class HologramCommand extends Command {
         }
         return false;
     }
+
+    private void sendStats(CommandSender sender) {
+        HologramUpdater updater = plugin.getHologramUpdater();
+
+        sender.sendMessage(TextFormat.YELLOW + "Hologram updater: " + TextFormat.WHITE
+                + "queued: " + updater.getQueueSize());
+
+        PacketDispatcher dispatcher = updater.getDispatcher();
+        sender.sendMessage(TextFormat.YELLOW + "Packet dispatcher: " + TextFormat.WHITE
+                + "queued: " + dispatcher.getQueueSize()
+                + ", spilled ticks: " + dispatcher.getSpilledTicks());
+
+        BatchCache batchCache = updater.getBatchCache();
+        sender.sendMessage(TextFormat.YELLOW + "Batch cache: " + TextFormat.WHITE
+                + "size: " + batchCache.size()
+                + ", hits: " + batchCache.getHits()
+                + ", misses: " + batchCache.getMisses());
+
+        Object placeholderAdapter = plugin.getPlaceholderAdapter();
+        if (placeholderAdapter instanceof PlaceholderAPIAdapter) {
+            PlaceholderCache cache = ((PlaceholderAPIAdapter) placeholderAdapter).getCache();
+
+            sender.sendMessage(TextFormat.YELLOW + "Placeholder cache: " + TextFormat.WHITE
+                    + "size: " + cache.size()
+                    + ", hits: " + cache.getHits()
+                    + ", misses: " + cache.getMisses());
+        }
+
+        NormalizationCache normalizationCache = GridFormatter.getNormalizationCache();
+        sender.sendMessage(TextFormat.YELLOW + "Grid normalization cache: " + TextFormat.WHITE
+                + "size: " + normalizationCache.size()
+                + ", hits: " + normalizationCache.getHits()
+                + ", misses: " + normalizationCache.getMisses());
+
+        for (RenderWorker worker : updater.getWorkers()) {
+            sender.sendMessage(TextFormat.GRAY + " #" + worker.getIndex() + ": " + TextFormat.WHITE
+                    + "queued: " + worker.getQueueSize()
+                    + ", processed: " + worker.getProcessedCount()
+                    + String.format(" (%.1f/s)", worker.getThroughput())
+                    + ", busy: " + worker.getBusyTime() + "ms"
+                    + ", idle: " + worker.getIdleTime() + "ms");
+        }
+    }
+
+    private void sendRefreshStates(CommandSender sender) {
+        List<RefreshScheduler.RefreshState> states = plugin.getRefreshScheduler().getStates();
+
+        sender.sendMessage(TextFormat.YELLOW + "Auto-updated holograms: " + TextFormat.WHITE + states.size());
+
+        for (RefreshScheduler.RefreshState state : states) {
+            sender.sendMessage(TextFormat.GRAY + " " + state.getHologram().getName() + ": " + TextFormat.WHITE
+                    + state.getDecision().name().toLowerCase()
+                    + ", interval: " + state.getInterval() + "/" + state.getHologram().getUpdateInterval() + " ticks"
+                    + ", unchanged renders: " + state.getUnchanged());
+        }
+    }
 }
@@ -0,0 +1,90 @@
+package gt.creeperface.holograms.entity;
+
+import cn.nukkit.entity.Entity;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reserves contiguous entity ID ranges for hologram lines
+ * Ranges of closed hologram entities are recycled for holograms with the same line count
+ *
+ * @author CreeperFace
+ */
+public class EntityIdAllocator {
+
+    private final Map<Integer, ArrayDeque<Long>> freeRanges = new HashMap<>();
+
+    /**
+     * Reserves {@code count} ranges of {@code size} IDs with at most one {@link Entity#idLock} acquisition
+     *
+     * @param count range count
+     * @param size  IDs per range
+     * @return reserved ranges
+     */
+    public long[][] reserve(int count, int size) {
+        long[][] ranges = new long[count][size];
+
+        if (count <= 0 || size <= 0) {
+            return ranges;
+        }
+
+        int recycled = 0;
+
+        synchronized (freeRanges) {
+            ArrayDeque<Long> free = freeRanges.get(size);
+
+            while (free != null && !free.isEmpty() && recycled < count) {
+                fill(ranges[recycled++], free.poll());
+            }
+        }
+
+        int remaining = count - recycled;
+
+        if (remaining > 0) {
+            long start;
+
+            synchronized (Entity.idLock) {
+                start = Entity.entityCount;
+                Entity.entityCount += (long) remaining * size;
+            }
+
+            for (int i = recycled; i < count; i++) {
+                fill(ranges[i], start);
+                start += size;
+            }
+        }
+
+        return ranges;
+    }
+
+    /**
+     * Returns the range for reuse, should be called only after the entities were removed from all viewers
+     *
+     * @param ids range returned by {@link #reserve(int, int)}
+     */
+    public void release(long[] ids) {
+        if (ids.length == 0) {
+            return;
+        }
+
+        long start = ids[0];
+
+        for (int i = 1; i < ids.length; i++) {
+            if (ids[i] != start + i) { //not reserved by this allocator
+                return;
+            }
+        }
+
+        synchronized (freeRanges) {
+            freeRanges.computeIfAbsent(ids.length, k -> new ArrayDeque<>()).add(start);
+        }
+    }
+
+    private static void fill(long[] range, long start) {
+        for (int i = 0; i < range.length; i++) {
+            range[i] = start + i;
+        }
+    }
+}
@@ -4,6 +4,7 @@ import cn.nukkit.Player;
 import cn.nukkit.entity.Entity;
 import cn.nukkit.level.Level;
 import cn.nukkit.level.format.FullChunk;
+import cn.nukkit.math.Vector3;
 import cn.nukkit.nbt.tag.CompoundTag;
 import gt.creeperface.holograms.Hologram;
 import gt.creeperface.holograms.Hologram.EntityEntry;
@@ -11,6 +12,8 @@ import gt.creeperface.holograms.Holograms;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.util.*;
+
 /**
  * @author CreeperFace
  */
@@ -29,6 +32,15 @@ public class HologramEntity extends Entity {
     @Setter
     private EntityEntry entityEntry;
 
+    //players in the loaded chunks, which are beyond the view distance
+    private final Map<Long, Player> culled = new HashMap<>();
+
+    //loader IDs of viewers which see only the title line
+    private final Set<Long> titleViewers = new HashSet<>();
+
+    //loader IDs of viewers beyond the refresh distance
+    private final Set<Long> staleViewers = new HashSet<>();
+
     public HologramEntity(FullChunk chunk, CompoundTag nbt) {
         super(chunk, nbt);
 
@@ -42,6 +54,7 @@ public class HologramEntity extends Entity {
         }
 
         this.hologram.addEntity(this);
+        Holograms.getInstance().getEntityIndex().add(this);
     }
 
     @Override
@@ -162,18 +175,41 @@ public class HologramEntity extends Entity {
         if (this.chunk != null && !this.closed) {
             Player[] players = this.level.getChunkPlayers(this.chunk.getX(), this.chunk.getZ()).values().toArray(new Player[0]);
 
+            if (this.hologram.isLodEnabled()) {
+                List<Player> visible = new ArrayList<>(players.length);
+
+                for (Player p : players) {
+                    if (addLodViewer(p)) {
+                        visible.add(p);
+                    }
+                }
+
+                //all visible players are rendered at once
+                if (!visible.isEmpty()) {
+                    this.hologram.spawnEntity(this, visible.toArray(new Player[0]));
+                }
+                return;
+            }
+
             this.hologram.spawnEntity(this, players);
 
             for (Player p : players) {
-                this.hasSpawned.put(p.getLoaderId(), p);
+                addViewer(p);
             }
         }
     }
 
     @Override
     public void spawnTo(Player player) {
-        if (!this.hasSpawned.containsKey(player.getLoaderId()) && player.chunkList.contains(Level.chunkHash(this.chunk.getX(), this.chunk.getZ()))) {
-            this.hasSpawned.put(player.getLoaderId(), player);
+        if (this.hologram.isLodEnabled()) {
+            if (addLodViewer(player)) {
+                this.hologram.spawnEntity(this, player);
+            }
+            return;
+        }
+
+        if (canSpawnTo(player)) {
+            addViewer(player);
 
             this.hologram.spawnEntity(this, player);
             /*if (cachedPackets.size() > 0) {
@@ -184,6 +220,130 @@ public class HologramEntity extends Entity {
         }
     }
 
+    private boolean canSpawnTo(Player player) {
+        return !this.hasSpawned.containsKey(player.getLoaderId()) && !this.culled.containsKey(player.getLoaderId()) && player.chunkList.contains(Level.chunkHash(this.chunk.getX(), this.chunk.getZ()));
+    }
+
+    /**
+     * Tracks the player and adds them as a viewer if they are in the view distance
+     *
+     * @return true if the hologram should be spawned to the player
+     */
+    private boolean addLodViewer(Player player) {
+        if (!canSpawnTo(player)) {
+            return false;
+        }
+
+        Holograms.getInstance().getLodTracker().track(player, this);
+
+        ViewState state = getViewState(player);
+
+        if (state == ViewState.HIDDEN) {
+            this.culled.put(player.getLoaderId(), player);
+            return false;
+        }
+
+        if (state == ViewState.TITLE) {
+            this.titleViewers.add(player.getLoaderId());
+        }
+
+        addViewer(player);
+        return true;
+    }
+
+    /**
+     * Re-evaluates level of detail of the hologram for the player
+     *
+     * @param player player viewing the hologram or culled by the view distance
+     * @param pos    current player position
+     */
+    public void updateLod(Player player, Vector3 pos) {
+        long loaderId = player.getLoaderId();
+        boolean spawned = this.hasSpawned.containsKey(loaderId);
+
+        if (this.closed || (!spawned && !this.culled.containsKey(loaderId))) {
+            return;
+        }
+
+        ViewState state = getViewState(pos);
+        ViewState current = !spawned ? ViewState.HIDDEN : this.titleViewers.contains(loaderId) ? ViewState.TITLE : ViewState.FULL;
+
+        if (state != current) {
+            this.staleViewers.remove(loaderId);
+
+            if (state == ViewState.HIDDEN) {
+                this.hologram.despawnEntity(this, player);
+                removeViewer(player);
+                this.titleViewers.remove(player.getLoaderId());
+                this.culled.put(loaderId, player);
+                return;
+            }
+
+            if (state == ViewState.TITLE) {
+                this.titleViewers.add(player.getLoaderId());
+            } else {
+                this.titleViewers.remove(player.getLoaderId());
+            }
+
+            this.culled.remove(loaderId);
+            addViewer(player);
+
+            //the hologram is respawned with the new line set
+            this.hologram.spawnEntity(this, player);
+            return;
+        }
+
+        if (!spawned) {
+            return;
+        }
+
+        double refreshDistance = this.hologram.getRefreshDistance();
+
+        if (refreshDistance > 0 && distanceSquared(pos) > refreshDistance * refreshDistance) {
+            this.staleViewers.add(loaderId);
+        } else if (this.staleViewers.remove(loaderId)) {
+            //player has missed periodic refreshes
+            this.hologram.updateEntity(this, player);
+        }
+    }
+
+    private void updateLod() {
+        if (!this.hologram.isLodEnabled()) {
+            return;
+        }
+
+        List<Player> players = new ArrayList<>(this.hasSpawned.values());
+        players.addAll(this.culled.values());
+
+        for (Player p : players) {
+            updateLod(p, p);
+        }
+    }
+
+    /**
+     * @return false if the player is too far to receive periodic refreshes
+     */
+    public boolean isRefreshed(Player player) {
+        return !this.staleViewers.contains(player.getLoaderId());
+    }
+
+    /**
+     * @return loader IDs of viewers which see only the title line
+     */
+    public Set<Long> getTitleViewers() {
+        return this.titleViewers;
+    }
+
+    private ViewState getViewState(Vector3 pos) {
+        double viewDistance = this.hologram.getViewDistance();
+
+        if (viewDistance <= 0 || distanceSquared(pos) <= viewDistance * viewDistance) {
+            return ViewState.FULL;
+        }
+
+        return this.hologram.getLodMode() == Hologram.LodMode.TITLE ? ViewState.TITLE : ViewState.HIDDEN;
+    }
+
    /* public static List<List<String>> getText(String id) {
         synchronized (Holograms.hologramLock) {
             return new ArrayList<>(Holograms.holograms.getOrDefault(id, new ArrayList<>()));
@@ -198,30 +358,91 @@ public class HologramEntity extends Entity {
             this.hologram.despawnEntity(this, players);
         }
 
-        this.hasSpawned.clear();
+        clearLod();
+        clearViewers();
     }
 
     @Override
     public void despawnFrom(Player player) {
+        if (this.culled.remove(player.getLoaderId()) != null) {
+            Holograms.getInstance().getLodTracker().untrack(player, this);
+        }
+
         if (this.hasSpawned.containsKey(player.getLoaderId())) {
             if (this.hologram != null) {
                 this.hologram.despawnEntity(this, player);
             }
 
-            this.hasSpawned.remove(player.getLoaderId());
+            removeViewer(player);
+            this.titleViewers.remove(player.getLoaderId());
+            this.staleViewers.remove(player.getLoaderId());
+            Holograms.getInstance().getLodTracker().untrack(player, this);
         }
     }
 
+    /**
+     * Drops all state kept for the player which has left the server, nothing is sent to the player
+     * Entity index and LOD tracker entries are removed by the caller
+     */
+    public void forgetViewer(Player player) {
+        long loaderId = player.getLoaderId();
+
+        this.hasSpawned.remove(loaderId);
+        this.culled.remove(loaderId);
+        this.titleViewers.remove(loaderId);
+        this.staleViewers.remove(loaderId);
+    }
+
+    private void addViewer(Player player) {
+        this.hasSpawned.put(player.getLoaderId(), player);
+        Holograms.getInstance().getEntityIndex().addViewer(player, this);
+    }
+
+    private void removeViewer(Player player) {
+        this.hasSpawned.remove(player.getLoaderId());
+        Holograms.getInstance().getEntityIndex().removeViewer(player, this);
+    }
+
+    private void clearViewers() {
+        HologramEntityIndex index = Holograms.getInstance().getEntityIndex();
+
+        for (Player p : this.hasSpawned.values()) {
+            index.removeViewer(p, this);
+        }
+
+        this.hasSpawned.clear();
+    }
+
+    private void clearLod() {
+        HologramLodTracker tracker = Holograms.getInstance().getLodTracker();
+
+        for (Player p : this.hasSpawned.values()) {
+            tracker.untrack(p, this);
+        }
+
+        for (Player p : this.culled.values()) {
+            tracker.untrack(p, this);
+        }
+
+        this.culled.clear();
+        this.titleViewers.clear();
+        this.staleViewers.clear();
+    }
+
     public void moveTo(double x, double y, double z) {
         this.setPosition(temporalVector.setComponents(x, y, z));
+        Holograms.getInstance().getEntityIndex().move(this);
 
         this.hologram.updatePos(this);
+        updateLod();
     }
 
     public void offsetTo(double x, double y, double z) {
         this.move(x, y, z);
+        Holograms.getInstance().getEntityIndex().move(this);
 
         this.hologram.updatePos(this);
+        updateLod();
     }
 
     @Override
@@ -243,10 +464,18 @@ public class HologramEntity extends Entity {
 
     public void closeHologram() {
         super.close();
+        Holograms.getInstance().getEntityIndex().remove(this);
 
         if (this.hologram != null)
             this.hologram.removeEntity(this);
 
-        this.hasSpawned.clear();
+        clearLod();
+        clearViewers();
+    }
+
+    private enum ViewState {
+        FULL,
+        TITLE,
+        HIDDEN
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,262 @@
+package gt.creeperface.holograms.entity;
+
+import cn.nukkit.Player;
+import cn.nukkit.level.Level;
+import cn.nukkit.level.Position;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+
+import java.util.*;
+
+/**
+ * Index of loaded hologram entities by level chunk, by hologram ID and by the players viewing them
+ * This class is accessed only from the main thread
+ *
+ * @author CreeperFace
+ */
+public class HologramEntityIndex {
+
+    private final Int2ObjectMap<LevelIndex> levels = new Int2ObjectOpenHashMap<>();
+
+    private final Map<String, Set<HologramEntity>> holograms = new HashMap<>();
+
+    private final Map<HologramEntity, Location> locations = new HashMap<>();
+
+    private final Long2ObjectMap<Set<HologramEntity>> viewers = new Long2ObjectOpenHashMap<>();
+
+    public void add(HologramEntity entity) {
+        if (locations.containsKey(entity) || entity.getLevel() == null) {
+            return;
+        }
+
+        Location location = new Location(entity.getLevel().getId(), Level.chunkHash(entity.getChunkX(), entity.getChunkZ()));
+        locations.put(entity, location);
+
+        levels.computeIfAbsent(location.level, id -> new LevelIndex()).add(entity, location.chunk);
+        holograms.computeIfAbsent(entity.getHologramId(), id -> new LinkedHashSet<>()).add(entity);
+    }
+
+    /**
+     * Should be called after the entity position has changed
+     */
+    public void move(HologramEntity entity) {
+        Location location = locations.get(entity);
+
+        if (location == null) {
+            add(entity);
+            return;
+        }
+
+        long chunk = Level.chunkHash(entity.getChunkX(), entity.getChunkZ());
+
+        if (location.level == entity.getLevel().getId() && location.chunk == chunk) {
+            return;
+        }
+
+        remove(entity);
+        add(entity);
+    }
+
+    public void remove(HologramEntity entity) {
+        Location location = locations.remove(entity);
+
+        if (location == null) {
+            return;
+        }
+
+        LevelIndex level = levels.get(location.level);
+
+        if (level != null) {
+            level.remove(entity, location.chunk);
+
+            if (level.count == 0) {
+                levels.remove(location.level);
+            }
+        }
+
+        Set<HologramEntity> entities = holograms.get(entity.getHologramId());
+
+        if (entities != null) {
+            entities.remove(entity);
+
+            if (entities.isEmpty()) {
+                holograms.remove(entity.getHologramId());
+            }
+        }
+    }
+
+    public Collection<HologramEntity> getByHologram(String hologramId) {
+        Set<HologramEntity> entities = holograms.get(hologramId);
+
+        if (entities == null) {
+            return Collections.emptyList();
+        }
+
+        return new ArrayList<>(entities);
+    }
+
+    public void addViewer(Player player, HologramEntity entity) {
+        Set<HologramEntity> entities = viewers.get(player.getId());
+
+        if (entities == null) {
+            entities = new LinkedHashSet<>();
+            viewers.put(player.getId(), entities);
+        }
+
+        entities.add(entity);
+    }
+
+    public void removeViewer(Player player, HologramEntity entity) {
+        Set<HologramEntity> entities = viewers.get(player.getId());
+
+        if (entities != null && entities.remove(entity) && entities.isEmpty()) {
+            viewers.remove(player.getId());
+        }
+    }
+
+    public void removeViewer(Player player) {
+        viewers.remove(player.getId());
+    }
+
+    /**
+     * @return entities currently spawned to the player
+     */
+    public Collection<HologramEntity> getViewed(Player player) {
+        Set<HologramEntity> entities = viewers.get(player.getId());
+
+        if (entities == null) {
+            return Collections.emptyList();
+        }
+
+        return new ArrayList<>(entities);
+    }
+
+    public HologramEntity findNearest(Position center) {
+        List<HologramEntity> nearest = findNearest(center, 1);
+
+        return nearest.isEmpty() ? null : nearest.get(0);
+    }
+
+    /**
+     * Searches chunk rings around the center until no closer entity can be found
+     *
+     * @param center search center
+     * @param count  max entity count
+     * @return entities sorted by distance
+     */
+    public List<HologramEntity> findNearest(Position center, int count) {
+        LevelIndex level = center.getLevel() != null ? levels.get(center.getLevel().getId()) : null;
+
+        if (level == null || count <= 0) {
+            return Collections.emptyList();
+        }
+
+        int centerX = center.getFloorX() >> 4;
+        int centerZ = center.getFloorZ() >> 4;
+
+        int maxRadius = Math.max(
+                Math.max(Math.abs(centerX - level.minX), Math.abs(centerX - level.maxX)),
+                Math.max(Math.abs(centerZ - level.minZ), Math.abs(centerZ - level.maxZ))
+        );
+
+        List<HologramEntity> result = new ArrayList<>(count + 1);
+        Comparator<HologramEntity> comparator = Comparator.comparingDouble(center::distanceSquared);
+
+        for (int radius = 0; radius <= maxRadius; radius++) {
+            if (result.size() >= count) {
+                double bound = (radius - 1) * 16;
+
+                if (bound > 0 && bound * bound > center.distanceSquared(result.get(count - 1))) {
+                    break;
+                }
+            }
+
+            for (int x = centerX - radius; x <= centerX + radius; x++) {
+                for (int z = centerZ - radius; z <= centerZ + radius; z++) {
+                    if (Math.abs(x - centerX) != radius && Math.abs(z - centerZ) != radius) {
+                        continue; //inside of the ring, already searched
+                    }
+
+                    Set<HologramEntity> entities = level.chunks.get(Level.chunkHash(x, z));
+
+                    if (entities == null) {
+                        continue;
+                    }
+
+                    for (HologramEntity entity : entities) {
+                        if (!entity.closed) {
+                            result.add(entity);
+                        }
+                    }
+                }
+            }
+
+            if (result.size() > count) {
+                result.sort(comparator);
+                result.subList(count, result.size()).clear();
+            }
+        }
+
+        result.sort(comparator);
+        return result;
+    }
+
+    private static class Location {
+
+        private final int level;
+        private final long chunk;
+
+        private Location(int level, long chunk) {
+            this.level = level;
+            this.chunk = chunk;
+        }
+    }
+
+    private static class LevelIndex {
+
+        private final Long2ObjectMap<Set<HologramEntity>> chunks = new Long2ObjectOpenHashMap<>();
+
+        private int count = 0;
+
+        //bounds of ever occupied chunks, limits the nearest search
+        private int minX = Integer.MAX_VALUE;
+        private int maxX = Integer.MIN_VALUE;
+        private int minZ = Integer.MAX_VALUE;
+        private int maxZ = Integer.MIN_VALUE;
+
+        private void add(HologramEntity entity, long chunk) {
+            Set<HologramEntity> entities = chunks.get(chunk);
+
+            if (entities == null) {
+                entities = new HashSet<>();
+                chunks.put(chunk, entities);
+            }
+
+            if (entities.add(entity)) {
+                count++;
+            }
+
+            int x = entity.getChunkX();
+            int z = entity.getChunkZ();
+
+            minX = Math.min(minX, x);
+            maxX = Math.max(maxX, x);
+            minZ = Math.min(minZ, z);
+            maxZ = Math.max(maxZ, z);
+        }
+
+        private void remove(HologramEntity entity, long chunk) {
+            Set<HologramEntity> entities = chunks.get(chunk);
+
+            if (entities != null && entities.remove(entity)) {
+                count--;
+
+                if (entities.isEmpty()) {
+                    chunks.remove(chunk);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package gt.creeperface.holograms.entity;
+
+import cn.nukkit.Player;
+import cn.nukkit.math.Vector3;
+
+import java.util.*;
+
+/**
+ * Tracks hologram entities with view distance settings in the chunks loaded by each player
+ * and re-evaluates their level of detail once the player moves far enough
+ * This class is accessed only from the main thread
+ *
+ * @author CreeperFace
+ */
+public class HologramLodTracker {
+
+    private final Map<Long, TrackedPlayer> players = new HashMap<>();
+
+    private double checkDistance;
+
+    public HologramLodTracker(double checkDistance) {
+        setCheckDistance(checkDistance);
+    }
+
+    public void setCheckDistance(double checkDistance) {
+        this.checkDistance = checkDistance * checkDistance;
+    }
+
+    public void track(Player player, HologramEntity entity) {
+        players.computeIfAbsent(player.getId(), id -> new TrackedPlayer()).entities.add(entity);
+    }
+
+    public void untrack(Player player, HologramEntity entity) {
+        TrackedPlayer tracked = players.get(player.getId());
+
+        if (tracked != null) {
+            tracked.entities.remove(entity);
+
+            if (tracked.entities.isEmpty()) {
+                players.remove(player.getId());
+            }
+        }
+    }
+
+    /**
+     * Removes the player which has left the server together with their state in all tracked entities
+     */
+    public void remove(Player player) {
+        TrackedPlayer tracked = players.remove(player.getId());
+
+        if (tracked != null) {
+            for (HologramEntity entity : tracked.entities) {
+                entity.forgetViewer(player);
+            }
+        }
+    }
+
+    /**
+     * @param player player which has moved
+     * @param to     new player position
+     */
+    public void onMove(Player player, Vector3 to) {
+        TrackedPlayer tracked = players.get(player.getId());
+
+        if (tracked == null) {
+            return;
+        }
+
+        if (tracked.lastCheck != null && tracked.lastCheck.distanceSquared(to) < checkDistance) {
+            return;
+        }
+
+        tracked.lastCheck = new Vector3(to.x, to.y, to.z);
+
+        for (HologramEntity entity : new ArrayList<>(tracked.entities)) {
+            entity.updateLod(player, to);
+        }
+    }
+
+    private static class TrackedPlayer {
+
+        private final Set<HologramEntity> entities = new HashSet<>();
+
+        private Vector3 lastCheck;
+    }
+}
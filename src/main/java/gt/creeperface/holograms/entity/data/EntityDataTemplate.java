@@ -0,0 +1,30 @@
+package gt.creeperface.holograms.entity.data;
+
+import cn.nukkit.entity.Entity;
+import cn.nukkit.entity.data.EntityMetadata;
+
+/**
+ * Metadata shared by all hologram lines
+ * Entries of the template are immutable, so every created metadata reuses them and only the name tag is allocated
+ *
+ * @author CreeperFace
+ */
+public class EntityDataTemplate {
+
+    private final cn.nukkit.entity.data.EntityData[] entries;
+
+    public EntityDataTemplate(EntityMetadata metadata) {
+        this.entries = metadata.getMap().values().toArray(new cn.nukkit.entity.data.EntityData[0]);
+    }
+
+    public EntityData create(String nameTag) {
+        EntityData data = new EntityData();
+
+        for (cn.nukkit.entity.data.EntityData entry : entries) {
+            data.put(entry);
+        }
+
+        data.putString(Entity.DATA_NAMETAG, nameTag);
+        return data;
+    }
+}
@@ -155,6 +155,7 @@ public class FormWindowHandler {
         }
 
         if (gridUpdate || gridSpaceUpdate || gridSourceUpdate || gridHeaderUpdate || normalizeUpdate) {
+            plugin.getHologramUpdater().invalidateCache(entity.getHologramId());
             entity.getHologram().update();
 
             GridSource source = gridSettings.getSource();
@@ -227,6 +228,7 @@ public class FormWindowHandler {
             temps.clear();
             temps.addAll(templates);
 
+            plugin.getHologramUpdater().invalidateCache(entity.getHologramId());
             entity.getHologram().update();
 
             Hologram.GridSettings gridSettings = entity.getHologram().getGridSettings();
@@ -1,5 +1,7 @@
 package gt.creeperface.holograms.grid;
 
+import cn.nukkit.utils.TextFormat;
+import gt.creeperface.holograms.api.grid.source.GridRowBuffer;
 import gt.creeperface.holograms.util.Utils;
 import lombok.experimental.UtilityClass;
 
@@ -13,13 +15,26 @@ import java.util.Arrays;
 @UtilityClass
 public final class CharactersTable {
 
-    private static final byte[] gliphsWidth = new byte[65536];
+    private static final int BOLD_PLANE = 1 << 16;
+    private static final int UNICODE_PLANE = 2 << 16;
 
-    private static final int[] asciiWidth = new int[65536];
+    /**
+     * Rendered widths of all characters in regular, bold, forced unicode and bold unicode planes
+     * indexed by plane offset | char
+     */
+    private static final byte[] widths = new byte[4 << 16];
+
+    //characters missing in the ascii font
+    private static final long[] unicodeChars = new long[1 << 10];
 
     //    private static final Map<Character, Byte> charMap = new HashMap<>();
 //
     static {
+        build(defaultAsciiWidths(), new byte[65536]);
+    }
+
+    private static int[] defaultAsciiWidths() {
+        int[] asciiWidth = new int[65536];
         Arrays.fill(asciiWidth, -100);
 
         byte[] charLengths = new byte[]{
@@ -38,6 +53,53 @@ public final class CharactersTable {
         }
 
         asciiWidth['§'] = 6;
+        return asciiWidth;
+    }
+
+    /**
+     * Precomputes widths of all characters
+     *
+     * @param asciiWidth  widths of the ascii font characters, -100 for characters rendered using the unicode font
+     * @param gliphsWidth packed start and end columns of the unicode font glyphs
+     */
+    private static void build(int[] asciiWidth, byte[] gliphsWidth) {
+        Arrays.fill(unicodeChars, 0);
+
+        for (int c = 0; c < 65536; c++) {
+            int regular = computeLength((char) c, false, asciiWidth, gliphsWidth);
+            int unicode = computeLength((char) c, true, asciiWidth, gliphsWidth);
+
+            widths[c] = (byte) regular;
+            widths[BOLD_PLANE | c] = (byte) (regular + 1);
+            widths[UNICODE_PLANE | c] = (byte) unicode;
+            widths[UNICODE_PLANE | BOLD_PLANE | c] = (byte) (unicode + 1);
+
+            if (asciiWidth[c] == -100) {
+                unicodeChars[c >>> 6] |= 1L << c;
+            }
+        }
+    }
+
+    private static int computeLength(char c, boolean unicode, int[] asciiWidth, byte[] gliphsWidth) {
+        if (c == ' ') {
+            return 4;
+        }
+
+        if (!unicode && c > 0) {
+            int width = asciiWidth[c];
+
+            if (width != -100) {
+                return width;
+            }
+        }
+
+        int width = gliphsWidth[c];
+
+        if (width <= 0) {
+            return 0;
+        }
+
+        return (((width & 0xF) + 1) - (width >>> 4)) / 2 + 1;
     }
 
 //    public static void register(char c, byte length) {
@@ -57,9 +119,22 @@ public final class CharactersTable {
 //        return charMap.getOrDefault(c, (byte) 0);
 //    }
 
-    public static boolean isUnicode(String input) {
-        for (char c : input.toCharArray()) {
-            if (isUnicode(c)) {
+    public static boolean isUnicode(CharSequence input) {
+        for (int i = 0, length = input.length(); i < length; i++) {
+            if (isUnicode(input.charAt(i))) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @return true if any of the row cells contains a character rendered using the unicode font
+     */
+    public static boolean isUnicode(GridRowBuffer rows, int row) {
+        for (int i = 0, count = rows.getCellCount(row); i < count; i++) {
+            if (isUnicode(rows.get(row, i))) {
                 return true;
             }
         }
@@ -68,33 +143,69 @@ public final class CharactersTable {
     }
 
     public static boolean isUnicode(char c) {
-        return asciiWidth[c] == -100;
+        return (unicodeChars[c >>> 6] & (1L << c)) != 0;
     }
 
     public static int lengthOf(char c, boolean unicode) {
-        if (c == ' ') {
-            return 4;
-        }
+        return widths[(unicode ? UNICODE_PLANE : 0) | c];
+    }
 
-        if (!unicode && c > 0) {
-            int width = asciiWidth[c];
+    /**
+     * Measures rendered width of the text, formatting codes aren't rendered and bold characters are one pixel wider
+     */
+    public static int widthOf(CharSequence text, boolean unicode) {
+        int plane = unicode ? UNICODE_PLANE : 0;
+        int width = 0;
+        boolean expectFormat = false;
+        boolean bold = false;
+
+        for (int i = 0, length = text.length(); i < length; i++) {
+            char c = text.charAt(i);
+
+            if (c == '§') {
+                if (i == length - 1) { //last char, isn't rendered
+                    break;
+                }
+
+                expectFormat = true;
+                continue;
+            }
 
-            if (width != -100) {
-                return width;
+            if (expectFormat) {
+                expectFormat = false;
+
+                if (c == 'l' || c == 'L') { //bold
+                    bold = true;
+                    continue;
+                } else if (c == 'r' || c == 'R') { //reset
+                    bold = false;
+                    continue;
+                } else if (TextFormat.getByChar(c) != null) {
+                    continue;
+                }
             }
+
+            width += widths[(bold ? plane | BOLD_PLANE : plane) | c];
         }
 
-        int width = gliphsWidth[c];
+        return width;
+    }
 
-        if (width <= 0) {
-            return 0;
+    /**
+     * Measures widths of the row cells into the buffer
+     *
+     * @param buffer buffer with capacity of at least the row cell count
+     */
+    public static void widthsOf(GridRowBuffer rows, int row, boolean unicode, int[] buffer) {
+        for (int i = 0, count = rows.getCellCount(row); i < count; i++) {
+            buffer[i] = widthOf(rows.get(row, i), unicode);
         }
-
-        return (((width & 0xF) + 1) - (width >>> 4)) / 2 + 1;
     }
 
     public static void init(InputStream ascii, InputStream gliphs) throws IOException {
         int[] map = new int[256];
+        int[] asciiWidth = defaultAsciiWidths();
+        byte[] gliphsWidth = new byte[65536];
 
         Utils.readFontTexture(ascii, map);
         gliphs.read(gliphsWidth);
@@ -109,6 +220,8 @@ public final class CharactersTable {
             asciiWidth[c] = map[i];
         }
 
+        build(asciiWidth, gliphsWidth);
+
 //        charMap.forEach((c, old) -> {
 //            int width = lengthOf(c, false);
 //
@@ -1,15 +1,14 @@
 package gt.creeperface.holograms.grid;
 
-import cn.nukkit.utils.TextFormat;
 import gt.creeperface.holograms.Hologram;
 import gt.creeperface.holograms.Hologram.GridSettings.ColumnTemplate;
 import gt.creeperface.holograms.HologramConfiguration;
+import gt.creeperface.holograms.api.grid.source.GridRowBuffer;
 import gt.creeperface.holograms.api.grid.source.GridSource;
 import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import lombok.*;
 
-import java.text.Normalizer;
 import java.util.*;
 
 /**
@@ -20,8 +19,18 @@ public final class GridFormatter {
 
     private static final int SPACE_WIDTH = 4;
 
+    @Getter
+    private static final NormalizationCache normalizationCache = new NormalizationCache(4096);
+
     public static List<String> process(List<String> lines, Hologram.GridSettings settings) {
-        List<List<String>> split = new ArrayList<>();
+        return process(lines, settings, new GridLayout());
+    }
+
+    /**
+     * @param layout layout of the previous render of the same grid, only changed cells are measured and padded again
+     */
+    public static List<String> process(List<String> lines, Hologram.GridSettings settings, GridLayout layout) {
+        GridRowBuffer rows = layout.nextRows();
         Int2ObjectMap<String> excluded = new Int2ObjectOpenHashMap<>();
         boolean source = settings.getSource() != null;
 
@@ -41,211 +50,77 @@ public final class GridFormatter {
                 unicode[excludedIndex - 1] = true;
             }
 
-            String[] splitLine = line.split(HologramConfiguration.getGridColSeparator());
+            rows.startRow();
 
-            split.add(Arrays.asList(splitLine));
+            for (String cell : line.split(HologramConfiguration.getGridColSeparator())) {
+                rows.add(cell);
+            }
         }
 
         if (source) {
-            return processSource(split, excluded, unicode, settings);
+            return processSource(rows, excluded, unicode, settings, layout);
         } else {
-            return process(split, excluded, unicode, settings);
+            return process(excluded, unicode, settings, layout);
         }
     }
 
-    private static List<String> processSource(List<List<String>> lines, Int2ObjectMap<String> excluded, boolean[] unicode, Hologram.GridSettings settings) {
+    private static List<String> processSource(GridRowBuffer rows, Int2ObjectMap<String> excluded, boolean[] unicode, Hologram.GridSettings settings, GridLayout layout) {
         GridSource<Object> source = settings.getSource();
         source.startReading();
 
         try {
             if (settings.isHeader() && source.supportsHeader()) {
-                lines.add(source.getHeader());
-                lines.add(Collections.emptyList());
+                rows.addRow(source.getHeader());
+                rows.startRow();
             }
 
             source.resetOffset();
 
-            List<ColumnTemplate> templates = settings.getColumnTemplates();
+            int first = rows.getRowCount();
+            source.readRows(rows);
 
-            while (source.hasNextRow()) {
-                List<Object> columns = source.nextRow();
-                List<String> replaced = new ArrayList<>(columns.size());
+            List<ColumnTemplate> templates = settings.getColumnTemplates();
 
-                for (int i = 0; i < columns.size(); i++) {
-                    String col = Objects.toString(columns.get(i));
+            for (int row = first; row < rows.getRowCount(); row++) {
+                for (int i = 0, count = rows.getCellCount(row); i < count; i++) {
+                    String col = rows.get(row, i);
 
                     if (settings.isNormalize()) {
-                        col = Normalizer
-                                .normalize(col, Normalizer.Form.NFD)
-                                .replaceAll("[^\\p{ASCII}]", "");
+                        col = normalizationCache.normalize(col);
                     }
 
                     ColumnTemplate template = templates.size() > i ? templates.get(i) : null;
 
-                    if (template == null) {
-                        replaced.add(col);
-                        continue;
-                    }
-
-                    replaced.add(template.replace(col));
+                    rows.set(row, i, template != null ? template.replace(col) : col);
                 }
-
-                lines.add(replaced);
             }
         } finally {
             source.stopReading();
         }
 
-        boolean[] unicode2 = new boolean[lines.size()];
-        System.arraycopy(unicode, 0, unicode2, 0, unicode.length);
+        boolean[] unicode2 = Arrays.copyOf(unicode, rows.getRowCount());
 
         for (int i = unicode.length; i < unicode2.length; i++) {
-            unicode2[i] = CharactersTable.isUnicode(String.join("", lines.get(i)));
+            unicode2[i] = CharactersTable.isUnicode(rows, i);
         }
 
-        return process(lines, excluded, unicode2, settings);
+        return process(excluded, unicode2, settings, layout);
     }
 
-    private static List<String> process(List<List<String>> lines, Int2ObjectMap<String> excluded, boolean[] unicode, Hologram.GridSettings settings) {
-        int columnCount = 0;
+    private static List<String> process(Int2ObjectMap<String> excluded, boolean[] unicode, Hologram.GridSettings settings, GridLayout layout) {
+        String[] rows = layout.layout(unicode, settings.getColumnSpace());
 
-        List<ColumnEntry[]> lineCols = new ArrayList<>(lines.size());
-        List<Integer> maxColumnsLengths = new ArrayList<>();
-
-        for (int li = 0; li < lines.size(); li++) {
-            List<String> line = lines.get(li);
-            final int index = li;
-
-            //get lengths of separate columns
-            ColumnEntry[] cols = line.stream().map(column -> {
-                int len = 0;
-                boolean expectFormat = false;
-                boolean bold = false;
-                boolean unicodeLine = unicode[index];
-
-                char[] chars = column.toCharArray();
-
-                for (int j = 0; j < chars.length; j++) {
-                    char c = chars[j];
-
-                    if (c == '§') {
-                        if (j == chars.length - 1) { //last char, isn't rendered
-                            break;
-                        }
-
-                        expectFormat = true;
-                        continue;
-                    }
-
-                    if (expectFormat) {
-                        expectFormat = false;
-
-                        if (c == 'l' || c == 'L') { //bold
-                            bold = true;
-                            continue;
-                        } else if (c == 'r' || c == 'R') { //reset
-                            bold = false;
-                            continue;
-                        } else if (TextFormat.getByChar(c) != null) {
-                            continue;
-                        }
-                    }
-
-                    if (bold) {
-                        len++;
-                    }
-
-                    len += CharactersTable.lengthOf(c, unicodeLine);
-                }
-
-                return new ColumnEntry(column + "§r", len);
-            }).toArray(ColumnEntry[]::new);
-
-            //check max column count
-            if (cols.length > columnCount) {
-                columnCount = cols.length;
-            }
-
-            //max length per column
-            for (int i = 0; i < cols.length; i++) {
-                ColumnEntry col = cols[i];
-
-                if (maxColumnsLengths.size() <= i) {
-                    maxColumnsLengths.add(col.length);
-                    continue;
-                }
-
-                int maxLength = maxColumnsLengths.get(i);
-
-                if (col.length > maxLength) {
-                    maxColumnsLengths.set(i, col.length);
-                }
-            }
-
-            lineCols.add(cols);
-        }
-
-//        for (ColumnEntry[] lineCol : lineCols) {
-//            MainLogger.getLogger().info(Arrays.deepToString(lineCol));
-//        }
-
-        List<String> newLines = new ArrayList<>();
+        List<String> newLines = new ArrayList<>(rows.length + excluded.size());
         int excludedIndex = 0;
 
-        char[] columnSpaces = new char[settings.getColumnSpace() / SPACE_WIDTH];
-        Arrays.fill(columnSpaces, ' ');
-
         String excludedLine;
 
-        //format columns
-        for (int ci = 0; ci < lineCols.size(); ci++) {
-            ColumnEntry[] lineCol = lineCols.get(ci);
-
+        for (String row : rows) {
             while ((excludedLine = excluded.get(excludedIndex++)) != null) {
                 newLines.add(excludedLine);
             }
 
-            StringBuilder lineBuilder = new StringBuilder();
-
-            double diff = 0;
-
-            for (int i = 0; i < lineCol.length; i++) {
-                ColumnEntry entry = lineCol[i];
-
-                int maxLength = maxColumnsLengths.get(i);
-
-                //length to add
-                double expectedLength = (maxLength - entry.length) + diff;
-
-                //convert length to spaces
-                int spaces = (int) Math.round(expectedLength / SPACE_WIDTH);
-
-                //space chars to append
-                char[] spaceChars = new char[spaces / 2];
-                Arrays.fill(spaceChars, ' ');
-
-                //(diff > 0 = the actual length is lower than expected) so we append one space to increase difference
-                if (spaceChars.length == 0 && diff > 0) {
-                    lineBuilder.append(' ');
-                }
-
-                //save diff after rounding by space length
-                diff = (expectedLength - (spaces * SPACE_WIDTH)) + (spaces > 2 ? ((spaces % 2) * SPACE_WIDTH) : 0);
-
-                lineBuilder.append(spaceChars);
-                lineBuilder.append(entry.column);
-                lineBuilder.append(spaceChars);
-
-                lineBuilder.append(columnSpaces);
-            }
-
-            String line = lineBuilder.toString();
-
-            if (!line.isEmpty()) {
-                line = line.substring(0, line.length() - (settings.getColumnSpace() / SPACE_WIDTH));
-            }
-
-            newLines.add(line);
+            newLines.add(row);
         }
 
         while ((excludedLine = excluded.get(excludedIndex++)) != null) {
@@ -303,12 +178,61 @@ public final class GridFormatter {
         return newLines;
     }
 
-    @AllArgsConstructor
-    @Getter
-    @ToString
-    private static class ColumnEntry {
+    /**
+     * Pads cells of the row to the column widths
+     *
+     * @param row          row index in the buffer
+     * @param widths       rendered widths of the cells
+     * @param columnWidths maximum widths of the columns
+     * @param builder      reused builder
+     */
+    static String formatRow(GridRowBuffer rows, int row, int[] widths, int[] columnWidths, int columnSpace, StringBuilder builder) {
+        int columnSpaces = columnSpace / SPACE_WIDTH;
+        int cellCount = rows.getCellCount(row);
+        int capacity = 0;
+
+        for (int i = 0; i < cellCount; i++) {
+            capacity += rows.get(row, i).length() + 2 + columnSpaces + (columnWidths[i] - widths[i]) / SPACE_WIDTH + 2;
+        }
+
+        builder.setLength(0);
+        builder.ensureCapacity(capacity);
+
+        double diff = 0;
+
+        for (int i = 0; i < cellCount; i++) {
+            if (i > 0) {
+                appendSpaces(builder, columnSpaces);
+            }
+
+            //length to add
+            double expectedLength = (columnWidths[i] - widths[i]) + diff;
+
+            //convert length to spaces
+            int spaces = (int) Math.round(expectedLength / SPACE_WIDTH);
 
-        private final String column;
-        private final int length;
+            //space chars to append
+            int spaceChars = spaces / 2;
+
+            //(diff > 0 = the actual length is lower than expected) so we append one space to increase difference
+            if (spaceChars == 0 && diff > 0) {
+                builder.append(' ');
+            }
+
+            //save diff after rounding by space length
+            diff = (expectedLength - (spaces * SPACE_WIDTH)) + (spaces > 2 ? ((spaces % 2) * SPACE_WIDTH) : 0);
+
+            appendSpaces(builder, spaceChars);
+            builder.append(rows.get(row, i)).append("§r");
+            appendSpaces(builder, spaceChars);
+        }
+
+        return builder.toString();
+    }
+
+    private static void appendSpaces(StringBuilder builder, int count) {
+        for (int i = 0; i < count; i++) {
+            builder.append(' ');
+        }
     }
 }
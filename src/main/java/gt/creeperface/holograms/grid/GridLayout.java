@@ -0,0 +1,132 @@
+package gt.creeperface.holograms.grid;
+
+import gt.creeperface.holograms.api.grid.source.GridRowBuffer;
+
+import java.util.Arrays;
+
+/**
+ * Layout of the last formatted grid, a cell is measured again only if its text has changed
+ * and a row is padded again only if the row or the maximum width of any of its columns has changed
+ * Instance is used only by the render worker of its hologram
+ *
+ * @author CreeperFace
+ */
+public class GridLayout {
+
+    //cells of the last layout and the buffer filled for the next one, swapped after every layout
+    private GridRowBuffer cells = new GridRowBuffer();
+    private GridRowBuffer next = new GridRowBuffer();
+
+    private int[][] widths = new int[0][];
+    private boolean[] unicode = new boolean[0];
+
+    private int[] columnWidths = new int[0];
+    private int columnCount = 0;
+    private int columnSpace = -1;
+
+    private String[] rows = new String[0];
+
+    //reused buffers
+    private int[] nextColumnWidths = new int[0];
+    private final StringBuilder builder = new StringBuilder(128);
+
+    /**
+     * @return cleared buffer which should be filled with the rows of the next layout
+     */
+    public GridRowBuffer nextRows() {
+        next.clear();
+        return next;
+    }
+
+    /**
+     * Lays out rows filled to {@link #nextRows()}
+     *
+     * @param unicode     true for rows which are rendered using the unicode font
+     * @param columnSpace space between columns
+     * @return padded rows
+     */
+    public String[] layout(boolean[] unicode, int columnSpace) {
+        GridRowBuffer lines = this.next;
+        int count = lines.getRowCount();
+
+        int[][] widths = count == this.widths.length ? this.widths : Arrays.copyOf(this.widths, count);
+        boolean[] changed = new boolean[count];
+
+        int columnCount = 0;
+
+        for (int row = 0; row < count; row++) {
+            int cellCount = lines.getCellCount(row);
+
+            //widths of the old cells depend on the font
+            boolean reusable = row < this.cells.getRowCount() && this.unicode[row] == unicode[row];
+            int oldCount = reusable ? this.cells.getCellCount(row) : 0;
+            int[] rowWidths = widths[row];
+
+            if (rowWidths == null || rowWidths.length != cellCount) {
+                rowWidths = reusable && rowWidths != null ? Arrays.copyOf(rowWidths, cellCount) : new int[cellCount];
+                widths[row] = rowWidths;
+            }
+
+            if (!reusable) {
+                CharactersTable.widthsOf(lines, row, unicode[row], rowWidths);
+                changed[row] = true;
+            } else {
+                changed[row] = oldCount != cellCount;
+
+                for (int column = 0; column < cellCount; column++) {
+                    String cell = lines.get(row, column);
+
+                    if (column < oldCount && cell.equals(this.cells.get(row, column))) {
+                        continue;
+                    }
+
+                    rowWidths[column] = CharactersTable.widthOf(cell, unicode[row]);
+                    changed[row] = true;
+                }
+            }
+
+            columnCount = Math.max(columnCount, cellCount);
+        }
+
+        int[] columnWidths = this.nextColumnWidths.length >= columnCount ? this.nextColumnWidths : new int[columnCount];
+        Arrays.fill(columnWidths, 0, columnCount, 0);
+
+        for (int row = 0; row < count; row++) {
+            int[] rowWidths = widths[row];
+
+            for (int column = 0; column < rowWidths.length; column++) {
+                columnWidths[column] = Math.max(columnWidths[column], rowWidths[column]);
+            }
+        }
+
+        //first column whose maximum width has changed, all rows reaching it have to be padded again
+        int firstChanged = columnSpace != this.columnSpace ? 0 : columnCount;
+
+        for (int column = 0; column < columnCount && firstChanged == columnCount; column++) {
+            if (column >= this.columnCount || columnWidths[column] != this.columnWidths[column]) {
+                firstChanged = column;
+            }
+        }
+
+        String[] rows = count == this.rows.length ? this.rows : Arrays.copyOf(this.rows, count);
+
+        for (int row = 0; row < count; row++) {
+            if (changed[row] || rows[row] == null || widths[row].length > firstChanged) {
+                rows[row] = GridFormatter.formatRow(lines, row, widths[row], columnWidths, columnSpace, builder);
+            }
+        }
+
+        this.nextColumnWidths = this.columnWidths;
+        this.columnWidths = columnWidths;
+        this.columnCount = columnCount;
+        this.columnSpace = columnSpace;
+
+        this.next = this.cells;
+        this.cells = lines;
+        this.widths = widths;
+        this.unicode = Arrays.copyOf(unicode, count);
+        this.rows = rows;
+
+        return rows.clone();
+    }
+}
@@ -0,0 +1,88 @@
+package gt.creeperface.holograms.grid;
+
+import java.text.Normalizer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of grid cells stripped to ASCII, leaderboard cells like player names repeat in every render
+ * The cache is shared by all render workers and cleared once it grows over the max size
+ *
+ * @author CreeperFace
+ */
+public class NormalizationCache {
+
+    private final int maxSize;
+
+    private final Map<String, String> values = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public NormalizationCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @return text decomposed to base characters with all non ASCII characters removed
+     */
+    public String normalize(String text) {
+        if (isAscii(text)) {
+            return text;
+        }
+
+        String normalized = values.get(text);
+
+        if (normalized != null) {
+            hits.incrementAndGet();
+            return normalized;
+        }
+
+        misses.incrementAndGet();
+        normalized = stripNonAscii(Normalizer.normalize(text, Normalizer.Form.NFD));
+
+        if (values.size() >= maxSize) {
+            values.clear();
+        }
+
+        values.put(text, normalized);
+        return normalized;
+    }
+
+    public static boolean isAscii(CharSequence text) {
+        for (int i = 0, length = text.length(); i < length; i++) {
+            if (text.charAt(i) > 0x7F) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    public static String stripNonAscii(CharSequence text) {
+        StringBuilder builder = new StringBuilder(text.length());
+
+        for (int i = 0, length = text.length(); i < length; i++) {
+            char c = text.charAt(i);
+
+            if (c <= 0x7F) {
+                builder.append(c);
+            }
+        }
+
+        return builder.toString();
+    }
+
+    public int size() {
+        return values.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+}
@@ -1,6 +1,7 @@
 package gt.creeperface.holograms.grid.source;
 
 import com.google.common.base.Preconditions;
+import gt.creeperface.holograms.api.grid.source.GridRowBuffer;
 import gt.creeperface.holograms.api.grid.source.GridSource;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
@@ -60,6 +61,17 @@ public abstract class AbstractGridSource<T> implements GridSource<T> {
         return source.get(currentRow);
     }
 
+    @Override
+    public void readRows(GridRowBuffer buffer) {
+        List<List<T>> source = this.source;
+
+        while (++currentRow < source.size()) {
+            buffer.addRow(source.get(currentRow));
+        }
+
+        currentRow = source.size() - 1;
+    }
+
     @Override
     public boolean hasNextColumn() {
         if (currentRow < 0 || currentRow >= source.size()) {
@@ -109,6 +121,9 @@ public abstract class AbstractGridSource<T> implements GridSource<T> {
         return source;
     }
 
+    /**
+     * @param data loaded rows, the list must not be modified after it's loaded
+     */
     protected void load(List<List<T>> data) {
         resetOffset();
         this.source = data;
@@ -2,10 +2,11 @@ package gt.creeperface.holograms.grid.source;
 
 import gt.creeperface.holograms.api.grid.source.GridSource;
 
-import java.util.ArrayList;
 import java.util.Collections;
 
 /**
+ * Snapshot of rows loaded by the main thread, loaded rows are never modified so they're shared with the base source
+ *
  * @author CreeperFace
  */
 public class LoadedGridSource extends AbstractGridSource<Object> {
@@ -14,7 +15,7 @@ public class LoadedGridSource extends AbstractGridSource<Object> {
         super(new SourceParameters());
         this.load(
                 baseSource instanceof AbstractGridSource ?
-                        new ArrayList<>(((AbstractGridSource<Object>) baseSource).getSource()) :
+                        ((AbstractGridSource<Object>) baseSource).getSource() :
                         Collections.emptyList()
         );
     }
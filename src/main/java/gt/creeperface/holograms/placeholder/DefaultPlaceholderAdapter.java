@@ -1,7 +1,9 @@
 package gt.creeperface.holograms.placeholder;
 
 import cn.nukkit.Player;
+import gt.creeperface.holograms.Holograms;
 import gt.creeperface.holograms.api.placeholder.PlaceholderAdapter;
+import gt.creeperface.holograms.api.placeholder.PlayerPlaceholderValues;
 
 import java.util.*;
 
@@ -19,8 +21,8 @@ public class DefaultPlaceholderAdapter implements PlaceholderAdapter<MatchedPlac
      * shouldn't be called
      */
     @Override
-    public Map<Long, Map<String, String>> translatePlaceholders(Collection<MatchedPlaceholder> placeholders, Collection<Player> players) {
-        return new HashMap<>();
+    public PlayerPlaceholderValues translatePlaceholders(Collection<MatchedPlaceholder> placeholders, Collection<Player> players) {
+        return PlayerPlaceholderValues.EMPTY;
     }
 
     @Override
@@ -43,6 +45,14 @@ public class DefaultPlaceholderAdapter implements PlaceholderAdapter<MatchedPlac
         return false;
     }
 
+    /**
+     * Language handlers set through the API aren't required to be thread safe
+     */
+    @Override
+    public boolean isThreadSafe() {
+        return Holograms.getInstance().getConfiguration().isAsyncPlaceholders();
+    }
+
     @Override
     public Object getValue(String placeholder) {
         return null;
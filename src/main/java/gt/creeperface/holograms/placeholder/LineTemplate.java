@@ -0,0 +1,109 @@
+package gt.creeperface.holograms.placeholder;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Hologram line split to literal and placeholder segments, so it can be rendered in a single pass
+ *
+ * @author CreeperFace
+ */
+@ToString
+public class LineTemplate {
+
+    @Getter
+    private final List<Segment> segments;
+
+    //line without placeholders
+    private final String literal;
+
+    private final int literalLength;
+
+    private LineTemplate(List<Segment> segments, String literal) {
+        this.segments = segments;
+        this.literal = literal;
+
+        int length = 0;
+        for (Segment segment : segments) {
+            if (!segment.placeholder) {
+                length += segment.text.length();
+            }
+        }
+
+        this.literalLength = length;
+    }
+
+    public static LineTemplate compile(String line, List<MatchedPlaceholder> matched) {
+        if (matched.isEmpty()) {
+            return new LineTemplate(Collections.singletonList(new Segment(line, false)), line);
+        }
+
+        List<Segment> segments = new ArrayList<>(matched.size() * 2 + 1);
+        int cursor = 0;
+
+        for (MatchedPlaceholder placeholder : matched) {
+            int start = placeholder.start >= cursor && line.startsWith(placeholder.raw, placeholder.start) ? placeholder.start : line.indexOf(placeholder.raw, cursor);
+
+            if (start < 0) {
+                continue;
+            }
+
+            if (start > cursor) {
+                segments.add(new Segment(line.substring(cursor, start), false));
+            }
+
+            segments.add(new Segment(placeholder.raw, true));
+            cursor = start + placeholder.raw.length();
+        }
+
+        if (cursor < line.length()) {
+            segments.add(new Segment(line.substring(cursor), false));
+        }
+
+        return new LineTemplate(Collections.unmodifiableList(segments), segments.size() == 1 && !segments.get(0).placeholder ? line : null);
+    }
+
+    /**
+     * @param values  resolves raw placeholder text to its value, placeholders without value are kept as they are
+     * @param builder reused builder
+     * @return rendered line
+     */
+    public String render(Function<String, String> values, StringBuilder builder) {
+        if (literal != null) {
+            return literal;
+        }
+
+        builder.setLength(0);
+        builder.ensureCapacity(literalLength + segments.size() * 8);
+
+        for (Segment segment : segments) {
+            if (!segment.placeholder) {
+                builder.append(segment.text);
+                continue;
+            }
+
+            String value = values.apply(segment.text);
+            builder.append(value != null ? value : segment.text);
+        }
+
+        return builder.toString();
+    }
+
+    @RequiredArgsConstructor
+    @Getter
+    @ToString
+    public static class Segment {
+
+        /**
+         * Literal text or raw placeholder text
+         */
+        private final String text;
+        private final boolean placeholder;
+    }
+}
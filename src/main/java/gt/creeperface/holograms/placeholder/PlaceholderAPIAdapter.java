@@ -1,7 +1,10 @@
 package gt.creeperface.holograms.placeholder;
 
 import cn.nukkit.Player;
+import cn.nukkit.Server;
+import cn.nukkit.event.EventHandler;
 import cn.nukkit.event.Listener;
+import cn.nukkit.event.player.PlayerQuitEvent;
 import com.creeperface.nukkit.placeholderapi.PlaceholderAPIIml;
 import com.creeperface.nukkit.placeholderapi.api.Placeholder;
 import com.creeperface.nukkit.placeholderapi.api.PlaceholderAPI;
@@ -11,11 +14,14 @@ import com.creeperface.nukkit.placeholderapi.api.util.UtilsKt;
 import gt.creeperface.holograms.Holograms;
 import gt.creeperface.holograms.api.Hologram;
 import gt.creeperface.holograms.api.placeholder.PlaceholderAdapter;
+import gt.creeperface.holograms.api.placeholder.PlayerPlaceholderValues;
 import gt.creeperface.holograms.placeholder.PlaceholderAPIAdapter.MatchedPlaceholderLocal;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.ToString;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 /**
@@ -25,9 +31,19 @@ public class PlaceholderAPIAdapter implements PlaceholderAdapter<MatchedPlacehol
 
     private final PlaceholderAPI api = PlaceholderAPIIml.getInstance();
 
+    @Getter
+    private final PlaceholderCache cache;
+
+    private final PlayerPlaceholderResolver resolver = new PlayerPlaceholderResolver();
+
+    //placeholders with registered change listener
+    private final Set<String> observed = ConcurrentHashMap.newKeySet();
+
     public PlaceholderAPIAdapter() {
         Holograms plugin = Holograms.getInstance();
         plugin.getServer().getPluginManager().registerEvents(this, plugin);
+
+        this.cache = new PlaceholderCache(plugin.getConfiguration().getPlaceholderCacheTtl());
 //        Placeholder placeholder = api.getPlaceholder("lang");
 //
 //        if (placeholder != null) {
@@ -44,34 +60,46 @@ public class PlaceholderAPIAdapter implements PlaceholderAdapter<MatchedPlacehol
     }
 
     @Override
-    public Map<Long, Map<String, String>> translatePlaceholders(Collection<MatchedPlaceholderLocal> placeholders, Collection<Player> players) {
-        Map<Long, Map<String, String>> values = new HashMap<>();
-
-        List<Entry> entries = new LinkedList<>();
+    public PlayerPlaceholderValues translatePlaceholders(Collection<MatchedPlaceholderLocal> placeholders, Collection<Player> players) {
+        //the same placeholder can be used on more lines
+        Map<String, Entry> entries = new LinkedHashMap<>();
         for (MatchedPlaceholderLocal match : placeholders) {
-            Placeholder<?> placeholder = api.getPlaceholder(match.name);
+            if (entries.containsKey(match.raw)) {
+                continue;
+            }
+
+            Placeholder<?> placeholder = getPlaceholder(match.name);
 
             if (placeholder == null || !placeholder.isVisitorSensitive()) {
                 continue;
             }
 
-            entries.add(new Entry(match, placeholder));
+            entries.put(match.raw, new Entry(match, placeholder));
         }
 
+        if (entries.isEmpty()) {
+            return PlayerPlaceholderValues.EMPTY;
+        }
+
+        Entry[] columns = entries.values().toArray(new Entry[0]);
+        PlayerPlaceholderValues values = new PlayerPlaceholderValues(entries.keySet().toArray(new String[0]), players);
+
+        int tick = Server.getInstance().getTick();
+        int row = 0;
+
         for (Player player : players) {
-            Map<String, String> replaced = new HashMap<>();
+            for (int column = 0; column < columns.length; column++) {
+                Entry entry = columns[column];
 
-            for (Entry entry : entries) {
-                replaced.put(
-                        entry.match.raw,
-                        entry.placeholder.getValue(
+                values.set(row, column, resolver.resolve(player, entry.match.raw, tick, () ->
+                        cache.get(entry.match.name, entry.match.raw, player, () -> entry.placeholder.getValue(
                                 entry.match.group.getParams(),
                                 GlobalScope.INSTANCE.getDefaultContext(),
-                                player)
-                );
+                                player))
+                ));
             }
 
-            values.put(player.getId(), replaced);
+            row++;
         }
 
         return values;
@@ -82,23 +110,59 @@ public class PlaceholderAPIAdapter implements PlaceholderAdapter<MatchedPlacehol
         Map<String, String> values = new HashMap<>();
 
         for (MatchedPlaceholderLocal match : placeholders) {
-            Placeholder<?> placeholder = api.getPlaceholder(match.name);
+            Placeholder<?> placeholder = getPlaceholder(match.name);
 
             if (placeholder == null || placeholder.isVisitorSensitive()) {
                 continue;
             }
 
-            values.put(match.raw, placeholder.getValue(
+            values.put(match.raw, cache.get(match.name, match.raw, null, () -> placeholder.getValue(
                     match.group.getParams(),
                     GlobalScope.INSTANCE.getDefaultContext(),
                     null
-                    )
+                    ))
             );
         }
 
         return values;
     }
 
+    private Placeholder<?> getPlaceholder(String name) {
+        Placeholder<?> placeholder = api.getPlaceholder(name);
+
+        if (placeholder != null && observed.add(name)) {
+            observe(name, placeholder);
+        }
+
+        return placeholder;
+    }
+
+    /**
+     * Uses update interval of the placeholder as TTL and invalidates cached values once the placeholder reports a change
+     */
+    private <T> void observe(String name, Placeholder<T> placeholder) {
+        Holograms plugin = Holograms.getInstance();
+
+        if (placeholder.getUpdateInterval() > 0) {
+            cache.setTtl(name, placeholder.getUpdateInterval() * 50L);
+        }
+
+        placeholder.addListener(plugin, (oldVal, newVal, p) -> {
+            if (Objects.equals(oldVal, newVal)) {
+                return;
+            }
+
+            cache.invalidate(name, p);
+            plugin.onPlaceholderChanged(name, p);
+        });
+    }
+
+    @EventHandler
+    public void onQuit(PlayerQuitEvent e) {
+        cache.invalidatePlayer(e.getPlayer());
+        resolver.remove(e.getPlayer());
+    }
+
     @Override
     public boolean containsVisitorSensitivePlaceholder(Collection<MatchedPlaceholderLocal> placeholders) {
         for (MatchedPlaceholderLocal pl : placeholders) {
@@ -160,6 +224,11 @@ public class PlaceholderAPIAdapter implements PlaceholderAdapter<MatchedPlacehol
         return true;
     }
 
+    @Override
+    public boolean isThreadSafe() {
+        return Holograms.getInstance().getConfiguration().isAsyncPlaceholders();
+    }
+
     @RequiredArgsConstructor
     private static class Entry {
         public final MatchedPlaceholderLocal match;
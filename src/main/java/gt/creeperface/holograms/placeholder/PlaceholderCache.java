@@ -0,0 +1,146 @@
+package gt.creeperface.holograms.placeholder;
+
+import cn.nukkit.Player;
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Shared cache of resolved placeholder values, so a placeholder used by many holograms is evaluated once per TTL
+ * Values are keyed by the raw placeholder text (name and parameters) and the player for visitor sensitive placeholders
+ *
+ * @author CreeperFace
+ */
+public class PlaceholderCache {
+
+    private static final long GLOBAL = -1;
+
+    //expired entries are purged once the cache grows over this size, but at most once per purge interval
+    private static final int PURGE_THRESHOLD = 4096;
+    private static final long MIN_PURGE_INTERVAL = 1000;
+
+    private final long defaultTtl;
+    private final long purgeInterval;
+
+    private final AtomicLong nextPurge = new AtomicLong();
+
+    private final Map<Key, Value> values = new ConcurrentHashMap<>();
+    private final Map<String, Long> ttls = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param defaultTtl time in milliseconds a value stays valid, 0 disables caching
+     */
+    public PlaceholderCache(long defaultTtl) {
+        this.defaultTtl = defaultTtl;
+        this.purgeInterval = Math.max(defaultTtl, MIN_PURGE_INTERVAL);
+    }
+
+    /**
+     * @param name   placeholder name
+     * @param raw    raw placeholder text including parameters
+     * @param player visitor, null for global placeholders
+     * @param loader resolves the value if there's no valid cached one
+     */
+    public String get(String name, String raw, Player player, Supplier<String> loader) {
+        long ttl = getTtl(name);
+
+        if (ttl <= 0) {
+            return loader.get();
+        }
+
+        Key key = new Key(name, raw, player != null ? player.getId() : GLOBAL);
+        long now = System.currentTimeMillis();
+
+        Value value = values.get(key);
+
+        if (value != null && value.expires > now) {
+            hits.incrementAndGet();
+            return value.value;
+        }
+
+        misses.incrementAndGet();
+
+        String loaded = loader.get();
+        values.put(key, new Value(loaded, now + ttl));
+
+        if (values.size() > PURGE_THRESHOLD) {
+            purge(now);
+        }
+
+        return loaded;
+    }
+
+    /**
+     * Removes expired values, the full scan is done by a single thread at most once per purge interval
+     */
+    private void purge(long now) {
+        long next = nextPurge.get();
+
+        if (now < next || !nextPurge.compareAndSet(next, now + purgeInterval)) {
+            return;
+        }
+
+        values.values().removeIf(v -> v.expires <= now);
+    }
+
+    public long getTtl(String name) {
+        return ttls.getOrDefault(name, defaultTtl);
+    }
+
+    /**
+     * @param ttl time in milliseconds values of the placeholder stay valid, 0 disables caching
+     */
+    public void setTtl(String name, long ttl) {
+        ttls.put(name, ttl);
+    }
+
+    /**
+     * Removes cached values of the placeholder
+     *
+     * @param player visitor whose value has changed, null to remove values of all players
+     */
+    public void invalidate(String name, Player player) {
+        values.keySet().removeIf(key -> key.name.equals(name) && (player == null || key.player == player.getId() || key.player == GLOBAL));
+    }
+
+    public void invalidatePlayer(Player player) {
+        long id = player.getId();
+
+        values.keySet().removeIf(key -> key.player == id);
+    }
+
+    public int size() {
+        return values.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    @RequiredArgsConstructor
+    @EqualsAndHashCode
+    private static class Key {
+
+        private final String name;
+        private final String raw;
+        private final long player;
+    }
+
+    @RequiredArgsConstructor
+    private static class Value {
+
+        private final String value;
+        private final long expires;
+    }
+}
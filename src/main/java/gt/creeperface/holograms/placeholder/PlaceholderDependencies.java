@@ -0,0 +1,98 @@
+package gt.creeperface.holograms.placeholder;
+
+import gt.creeperface.holograms.Hologram;
+import gt.creeperface.holograms.HologramTranslation;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reverse index of placeholder names to the holograms, translations and lines which use them
+ *
+ * @author CreeperFace
+ */
+public class PlaceholderDependencies {
+
+    private final Map<String, Map<String, Dependency>> dependencies = new ConcurrentHashMap<>();
+
+    //placeholder names used by each hologram, needed to remove old entries
+    private final Map<String, Set<String>> hologramPlaceholders = new ConcurrentHashMap<>();
+
+    /**
+     * Replaces all dependencies of the hologram
+     */
+    public synchronized void register(Hologram hologram) {
+        unregister(hologram.getName());
+
+        Map<String, Dependency> hologramDependencies = new HashMap<>();
+
+        List<HologramTranslation> translations = hologram.getTranslationList();
+        for (int translation = 0; translation < translations.size(); translation++) {
+            List<List<MatchedPlaceholder>> lines = translations.get(translation).getPlaceholders();
+
+            for (int line = 0; line < lines.size(); line++) {
+                for (MatchedPlaceholder placeholder : lines.get(line)) {
+                    hologramDependencies.computeIfAbsent(placeholder.name, name -> new Dependency(hologram)).add(translation, line);
+                }
+            }
+        }
+
+        hologramDependencies.forEach((name, dependency) ->
+                dependencies.computeIfAbsent(name, n -> new ConcurrentHashMap<>()).put(hologram.getName(), dependency));
+
+        hologramPlaceholders.put(hologram.getName(), new HashSet<>(hologramDependencies.keySet()));
+    }
+
+    public synchronized void unregister(String hologramId) {
+        Set<String> names = hologramPlaceholders.remove(hologramId);
+
+        if (names == null) {
+            return;
+        }
+
+        for (String name : names) {
+            Map<String, Dependency> dependents = dependencies.get(name);
+
+            if (dependents != null) {
+                dependents.remove(hologramId);
+
+                if (dependents.isEmpty()) {
+                    dependencies.remove(name);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param name placeholder name
+     * @return usages of the placeholder
+     */
+    public Collection<Dependency> getDependents(String name) {
+        Map<String, Dependency> dependents = dependencies.get(name);
+
+        if (dependents == null) {
+            return Collections.emptyList();
+        }
+
+        return new ArrayList<>(dependents.values());
+    }
+
+    @RequiredArgsConstructor
+    public static class Dependency {
+
+        @Getter
+        private final Hologram hologram;
+
+        /**
+         * Lines which use the placeholder in each translation
+         */
+        @Getter
+        private final TranslationLines lines = new TranslationLines();
+
+        private void add(int translation, int line) {
+            lines.set(translation, line);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package gt.creeperface.holograms.placeholder;
+
+import cn.nukkit.Player;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Shares visitor sensitive placeholder values resolved in the same tick between all holograms the player is viewing
+ * Every distinct placeholder text gets a slot index, values of each player are stored in an array indexed by the slot
+ *
+ * @author CreeperFace
+ */
+public class PlayerPlaceholderResolver {
+
+    private final Map<String, Integer> slots = new ConcurrentHashMap<>();
+    private final AtomicInteger slotCount = new AtomicInteger();
+
+    private final Map<Long, Row> rows = new ConcurrentHashMap<>();
+
+    /**
+     * @param player      visitor
+     * @param placeholder raw placeholder text
+     * @param tick        current server tick
+     * @param loader      resolves the value if it wasn't resolved for the player in this tick yet
+     */
+    public String resolve(Player player, String placeholder, int tick, Supplier<String> loader) {
+        int slot = slots.computeIfAbsent(placeholder, p -> slotCount.getAndIncrement());
+        Row row = rows.computeIfAbsent(player.getId(), id -> new Row());
+
+        synchronized (row) {
+            row.ensureCapacity(slot + 1);
+
+            if (row.ticks[slot] == tick) {
+                return row.values[slot];
+            }
+
+            String value = loader.get();
+
+            row.values[slot] = value;
+            row.ticks[slot] = tick;
+
+            return value;
+        }
+    }
+
+    public void remove(Player player) {
+        rows.remove(player.getId());
+    }
+
+    private static class Row {
+
+        private String[] values = new String[0];
+        private int[] ticks = new int[0];
+
+        private void ensureCapacity(int capacity) {
+            if (capacity <= values.length) {
+                return;
+            }
+
+            int oldLength = ticks.length;
+            int length = Math.max(capacity, oldLength * 2);
+
+            values = Arrays.copyOf(values, length);
+            ticks = Arrays.copyOf(ticks, length);
+
+            Arrays.fill(ticks, oldLength, length, -1);
+        }
+    }
+}
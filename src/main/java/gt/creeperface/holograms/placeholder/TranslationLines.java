@@ -0,0 +1,74 @@
+package gt.creeperface.holograms.placeholder;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Set of line indices kept separately for each translation of a hologram
+ *
+ * @author CreeperFace
+ */
+public class TranslationLines {
+
+    private BitSet[] lines = new BitSet[0];
+
+    public void set(int translation, int line) {
+        if (translation >= lines.length) {
+            lines = Arrays.copyOf(lines, translation + 1);
+        }
+
+        if (lines[translation] == null) {
+            lines[translation] = new BitSet();
+        }
+
+        lines[translation].set(line);
+    }
+
+    public boolean get(int translation, int line) {
+        return translation < lines.length && lines[translation] != null && lines[translation].get(line);
+    }
+
+    /**
+     * Adds all lines of the other set to this one
+     */
+    public void or(TranslationLines other) {
+        if (other.lines.length > lines.length) {
+            lines = Arrays.copyOf(lines, other.lines.length);
+        }
+
+        for (int translation = 0; translation < other.lines.length; translation++) {
+            BitSet otherLines = other.lines[translation];
+
+            if (otherLines == null) {
+                continue;
+            }
+
+            if (lines[translation] == null) {
+                lines[translation] = new BitSet();
+            }
+
+            lines[translation].or(otherLines);
+        }
+    }
+
+    public boolean isEmpty() {
+        for (BitSet translationLines : lines) {
+            if (translationLines != null && !translationLines.isEmpty()) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    public void clear() {
+        lines = new BitSet[0];
+    }
+
+    public TranslationLines copy() {
+        TranslationLines copy = new TranslationLines();
+        copy.or(this);
+
+        return copy;
+    }
+}
@@ -0,0 +1,121 @@
+package gt.creeperface.holograms.task;
+
+import cn.nukkit.network.protocol.BatchPacket;
+import cn.nukkit.network.protocol.DataPacket;
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU of compressed spawn batches
+ * Encoded packets are reused until the hologram content changes, so identity of the packet set is used as content version
+ *
+ * @author CreeperFace
+ */
+public class BatchCache {
+
+    private final int maxSize;
+
+    private final LinkedHashMap<Key, Entry> cache;
+
+    private long hits = 0;
+    private long misses = 0;
+
+    public BatchCache(int maxSize) {
+        this.maxSize = maxSize;
+        this.cache = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > BatchCache.this.maxSize;
+            }
+        };
+    }
+
+    public synchronized BatchPacket get(String hologramId, int language, DataPacket[] packets) {
+        Entry entry = cache.get(new Key(hologramId, language, contentVersion(packets)));
+
+        if (entry == null || !sameContent(entry.packets, packets)) {
+            misses++;
+            return null;
+        }
+
+        hits++;
+        return entry.batch;
+    }
+
+    public synchronized void put(String hologramId, int language, DataPacket[] packets, BatchPacket batch) {
+        if (maxSize <= 0) {
+            return;
+        }
+
+        cache.put(new Key(hologramId, language, contentVersion(packets)), new Entry(packets.clone(), batch));
+    }
+
+    /**
+     * Removes all batches of the hologram
+     */
+    public synchronized void invalidate(String hologramId) {
+        Iterator<Key> iterator = cache.keySet().iterator();
+
+        while (iterator.hasNext()) {
+            if (iterator.next().hologramId.equals(hologramId)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return cache.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    private static int contentVersion(DataPacket[] packets) {
+        int hash = 1;
+
+        for (DataPacket packet : packets) {
+            hash = 31 * hash + System.identityHashCode(packet);
+        }
+
+        return hash;
+    }
+
+    private static boolean sameContent(DataPacket[] cached, DataPacket[] packets) {
+        if (cached.length != packets.length) {
+            return false;
+        }
+
+        for (int i = 0; i < cached.length; i++) {
+            if (cached[i] != packets[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @RequiredArgsConstructor
+    @EqualsAndHashCode
+    private static class Key {
+
+        private final String hologramId;
+        private final int language;
+        private final int contentVersion;
+    }
+
+    @RequiredArgsConstructor
+    private static class Entry {
+
+        private final DataPacket[] packets;
+        private final BatchPacket batch;
+    }
+}
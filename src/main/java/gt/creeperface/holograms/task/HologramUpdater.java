@@ -1,8 +1,6 @@
 package gt.creeperface.holograms.task;
 
-import cn.nukkit.InterruptibleThread;
 import cn.nukkit.Player;
-import cn.nukkit.Server;
 import cn.nukkit.entity.Attribute;
 import cn.nukkit.entity.Entity;
 import cn.nukkit.entity.data.EntityMetadata;
@@ -15,32 +13,49 @@ import com.google.common.collect.Lists;
 import gt.creeperface.holograms.Hologram;
 import gt.creeperface.holograms.Hologram.EntityEntry;
 import gt.creeperface.holograms.HologramConfiguration;
+import gt.creeperface.holograms.HologramTranslation;
 import gt.creeperface.holograms.Holograms;
 import gt.creeperface.holograms.api.grid.source.GridSource;
+import gt.creeperface.holograms.api.placeholder.PlayerPlaceholderValues;
 import gt.creeperface.holograms.compatibility.network.PacketManager;
 import gt.creeperface.holograms.compatibility.network.packet.PacketHolder;
 import gt.creeperface.holograms.compatibility.network.packet.generic.AbstractMovePacket;
+import gt.creeperface.holograms.entity.EntityIdAllocator;
+import gt.creeperface.holograms.entity.HologramEntity;
 import gt.creeperface.holograms.entity.data.EntityData;
+import gt.creeperface.holograms.entity.data.EntityDataTemplate;
 import gt.creeperface.holograms.grid.GridFormatter;
 import gt.creeperface.holograms.grid.source.LoadedGridSource;
-import gt.creeperface.holograms.placeholder.MatchedPlaceholder;
+import gt.creeperface.holograms.placeholder.LineTemplate;
+import gt.creeperface.holograms.placeholder.TranslationLines;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.ToString;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 /**
  * @author CreeperFace
  */
 
-public class HologramUpdater extends Thread implements InterruptibleThread {
+public class HologramUpdater {
 
     private final Holograms plugin;
 
-    private final Deque<UpdateEntry> updateQueue = new ArrayDeque<>();
-    private final Deque<MoveEntry> moveQueue = new ArrayDeque<>();
+    private volatile RenderWorker[] workers = new RenderWorker[0];
+
+    @Getter
+    private BatchCache batchCache = new BatchCache(0);
+
+    private final EntityIdAllocator idAllocator = new EntityIdAllocator();
+
+    @Getter
+    private PacketDispatcher dispatcher;
+
+    private final Map<String, UpdateEntry> pendingUpdates = new ConcurrentHashMap<>();
 
     private static final EntityData DEFAULT_DATA = (EntityData) new EntityData()
             .putLong(Entity.DATA_FLAGS, (
@@ -57,104 +72,282 @@ public class HologramUpdater extends Thread implements InterruptibleThread {
             .putLong(Entity.DATA_LEAD_HOLDER_EID, -1)
             .putByte(Entity.DATA_ALWAYS_SHOW_NAMETAG, 1);
 
+    private static final EntityDataTemplate METADATA_TEMPLATE = new EntityDataTemplate(DEFAULT_DATA);
+
+    //render workers are dedicated threads, so each of them reuses its own builder
+    private static final ThreadLocal<StringBuilder> LINE_BUILDER = ThreadLocal.withInitial(() -> new StringBuilder(64));
+
     private static final Attribute[] DEFAULT_ATTRIBUTES = new Attribute[]{Attribute.getAttribute(Attribute.MAX_HEALTH).setMaxValue(100).setValue(100)};
 
     public HologramUpdater(Holograms plugin) {
         this.plugin = plugin;
-        this.setDaemon(true);
     }
 
-    @Override
-    public void run() {
-        while (Server.getInstance().isRunning() && plugin.isEnabled()) {
+    /**
+     * Starts the render pool, this method is called from the main thread
+     */
+    public void start() {
+        HologramConfiguration configuration = plugin.getConfiguration();
+        this.batchCache = new BatchCache(configuration.getBatchCacheSize());
 
-            try {
-                while (true) {
-                    UpdateEntry entry;
+        this.dispatcher = new PacketDispatcher(plugin, configuration.getDispatchTimeBudget(), configuration.getDispatchByteBudget());
+        plugin.getServer().getScheduler().scheduleRepeatingTask(plugin, this.dispatcher, 1);
 
-                    synchronized (updateQueue) {
-                        if (updateQueue.isEmpty()) {
-                            break;
-                        }
+        //values lower than 1 select count based on available processors
+        int threads = configuration.getRenderThreads();
+        if (threads <= 0) {
+            threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        }
 
-                        entry = updateQueue.poll();
-                    }
+        RenderWorker[] workers = new RenderWorker[threads];
 
-                    try {
-                        spawnHologram(entry);
-                    } catch (Exception e) {
-                        MainLogger.getLogger().critical("Could not process hologram spawn request", e);
-                    }
-                }
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new RenderWorker(this, i);
+            workers[i].start();
+        }
 
-                while (true) {
-                    MoveEntry entry;
+        this.workers = workers;
+    }
 
-                    synchronized (moveQueue) {
-                        if (moveQueue.isEmpty()) {
-                            break;
-                        }
+    public boolean isRunning() {
+        return this.workers.length > 0;
+    }
 
-                        entry = moveQueue.poll();
-                    }
+    /**
+     * Stops all render workers, pending entries are discarded
+     */
+    public void shutdown() {
+        RenderWorker[] workers = this.workers;
+        this.workers = new RenderWorker[0];
 
-                    if (entry == null) {
-                        throw new NullPointerException("null entry");
-                    }
+        for (RenderWorker worker : workers) {
+            worker.shutdown();
+        }
+    }
 
-                    Vector3 pos = entry.pos;
-                    double baseY = 0;
+    public List<RenderWorker> getWorkers() {
+        return Collections.unmodifiableList(Arrays.asList(this.workers));
+    }
 
-                    List<RemoveEntityPacket> reps = entry.entityEntry.getRemovePackets();
+    /**
+     * @return entries waiting in all worker queues
+     */
+    public int getQueueSize() {
+        int size = 0;
 
-                    List<AbstractMovePacket> movePackets = new ArrayList<>(reps.size());
+        for (RenderWorker worker : this.workers) {
+            size += worker.getQueueSize();
+        }
 
-                    for (RemoveEntityPacket rep : Lists.reverse(reps)) {
-                        AbstractMovePacket pk = PacketManager.getMovePacket();
+        return size;
+    }
 
-                        if (pk == null) {
-                            throw new NullPointerException("null packet");
-                        }
+    /**
+     * Recycles entity IDs of a closed hologram entity
+     * IDs are released by the render worker of the hologram after all queued renders of the entity were sent
+     * This method is called from the main thread after the entity was despawned
+     */
+    public void releaseIds(Hologram hologram, EntityEntry entityEntry) {
+        submitDespawn(new DespawnEntry(hologram.getName(), entityEntry, new Player[0], true));
+    }
 
-                        pk.setEntityId(rep.eid);
-                        pk.setX(pos.x);
-                        pk.setY(pos.y + baseY);
-                        pk.setZ(pos.z);
-                        pk.setOnGround(true);
+    /**
+     * Removes the entity from the players after all its queued renders were sent, so a delayed spawn can't follow the removal
+     * This method is called from the main thread
+     */
+    public void despawn(Hologram hologram, EntityEntry entityEntry, Player... players) {
+        submitDespawn(new DespawnEntry(hologram.getName(), entityEntry, players, false));
+    }
 
-                        //pk.encodePacket(true);
+    private void submitDespawn(DespawnEntry entry) {
+        if (!isRunning()) {
+            despawn(entry);
+            return;
+        }
 
-                        movePackets.add(pk);
+        //updates queued later can't be merged into renders processed before this entry
+        pendingUpdates.remove(entry.getHologramId());
+        submit(entry);
+    }
 
-                        baseY += HologramConfiguration.getLineGap();
-                    }
+    /**
+     * Drops cached data of the hologram after its content has changed
+     */
+    public void invalidateCache(String hologramId) {
+        this.batchCache.invalidate(hologramId);
+    }
 
-                    DataPacket[] packets = movePackets.stream().map(PacketHolder::getPacket).toArray(DataPacket[]::new);
-                    Player[] players = entry.players.toArray(new Player[0]);
+    private void submit(QueueEntry entry) {
+        RenderWorker[] workers = this.workers;
 
-//                    for (MovePlayerPacket pk : packets) {
-//                        MainLogger.getLogger().info("X: " + pk.x + "  Y: " + pk.y + "   Z:" + pk.z);
-//                    }
+        if (workers.length == 0) {
+            return;
+        }
 
-                    this.sendPackets(packets, players);
-                }
-            } catch (Throwable t) {
-                MainLogger.getLogger().error("Error occurred during updating holograms", t);
+        workers[Math.floorMod(entry.getHologramId().hashCode(), workers.length)].submit(entry);
+    }
+
+    /**
+     * Merges the update into a pending update of the same hologram if there is any
+     * so each hologram is rendered at most once per queue drain
+     */
+    private void submitUpdate(UpdateEntry entry) {
+        boolean[] queued = new boolean[1];
+
+        pendingUpdates.compute(entry.getHologramId(), (id, pending) -> {
+            if (pending != null) {
+                pending.merge(entry);
+                return pending;
             }
 
+            queued[0] = true;
+            return entry;
+        });
+
+        if (queued[0]) {
+            submit(entry);
+        }
+    }
+
+    void process(QueueEntry entry) {
+        if (entry instanceof UpdateEntry) {
+            pendingUpdates.remove(entry.getHologramId(), entry);
+
             try {
-                Thread.sleep(1);
-            } catch (InterruptedException e) {
-                //ignore
+                spawnHologram((UpdateEntry) entry);
+            } catch (Exception e) {
+                MainLogger.getLogger().critical("Could not process hologram spawn request", e);
             }
+        } else if (entry instanceof LanguageEntry) {
+            changeLanguage((LanguageEntry) entry);
+        } else if (entry instanceof DespawnEntry) {
+            despawn((DespawnEntry) entry);
+        } else {
+            moveHologram((MoveEntry) entry);
         }
     }
 
+    private void despawn(DespawnEntry entry) {
+        EntityEntry entityEntry = entry.entityEntry;
+        List<RemoveEntityPacket> removePackets = entityEntry.getRemovePackets();
+
+        if (entry.players.length > 0 && !removePackets.isEmpty()) {
+            DataPacket[] packets = removePackets.toArray(new DataPacket[0]);
+
+            if (this.dispatcher != null) {
+                this.sendPackets(packets, entry.players);
+            } else {
+                plugin.getServer().batchPackets(entry.players, packets);
+            }
+        }
+
+        if (entry.release) {
+            long[] ids = entityEntry.getReservedIds();
+            entityEntry.setReservedIds(null);
+            entityEntry.clearCachedRemovePackets();
+
+            if (ids != null) {
+                idAllocator.release(ids);
+            }
+        }
+    }
+
+    private void changeLanguage(LanguageEntry entry) {
+        List<DataPacket> packets = new ArrayList<>();
+        List<EntityEntry> failed = new ArrayList<>();
+
+        for (int i = 0; i < entry.entityEntries.size(); i++) {
+            EntityEntry entityEntry = entry.entityEntries.get(i);
+
+            if (entityEntry.getEntity().closed) {
+                continue;
+            }
+
+            String[] lines = entityEntry.getSentLines(entry.translation, entry.lineCount);
+            List<RemoveEntityPacket> reps = entityEntry.getRemovePackets();
+
+            //the translation wasn't rendered for this entity yet
+            if (lines == null || reps.size() != lines.length) {
+                failed.add(entityEntry);
+                continue;
+            }
+
+            int count = entry.titleOnly.get(i) ? 1 : lines.length;
+
+            for (int line = 0; line < count; line++) {
+                SetEntityDataPacket pk = new SetEntityDataPacket();
+                pk.eid = reps.get(line).eid;
+                pk.metadata = new EntityMetadata()
+                        .putString(Entity.DATA_NAMETAG, lines[line]);
+
+                pk.encode();
+                pk.isEncoded = true;
+
+                packets.add(pk);
+            }
+        }
+
+        if (!packets.isEmpty()) {
+            this.sendPackets(packets.toArray(new DataPacket[0]), entry.player);
+        }
+
+        //targeted update isn't a broadcast, so all lines of the entities are rendered and sent
+        if (!failed.isEmpty()) {
+            plugin.getServer().getScheduler().scheduleTask(plugin, () -> update(entry.hologram, entry.hologram.getRawTranslations(), failed, false, entry.player));
+        }
+    }
+
+    private void moveHologram(MoveEntry entry) {
+        if (entry.entityEntry.getEntity().closed) {
+            return;
+        }
+
+        Vector3 pos = entry.pos;
+        double baseY = 0;
+
+        List<RemoveEntityPacket> reps = entry.entityEntry.getRemovePackets();
+
+        List<AbstractMovePacket> movePackets = new ArrayList<>(reps.size());
+
+        for (RemoveEntityPacket rep : Lists.reverse(reps)) {
+            AbstractMovePacket pk = PacketManager.getMovePacket();
+
+            if (pk == null) {
+                throw new NullPointerException("null packet");
+            }
+
+            pk.setEntityId(rep.eid);
+            pk.setX(pos.x);
+            pk.setY(pos.y + baseY);
+            pk.setZ(pos.z);
+            pk.setOnGround(true);
+
+            pk.encodePacket(true);
+
+            movePackets.add(pk);
+
+            baseY += HologramConfiguration.getLineGap();
+        }
+
+        DataPacket[] packets = movePackets.stream().map(PacketHolder::getPacket).toArray(DataPacket[]::new);
+        Player[] players = entry.players.toArray(new Player[0]);
+
+        this.sendPackets(packets, players);
+    }
+
     private void spawnHologram(UpdateEntry entry) {
-        if (entry.getPlayers().size() <= 0) {
+        if (entry.viewers.isEmpty() || !prepare(entry)) {
             return;
         }
 
+        try {
+            renderHologram(entry);
+        } finally {
+            releaseUnusedIds(entry);
+        }
+    }
+
+    private void renderHologram(UpdateEntry entry) {
         if (entry.getGrid().isEnabled()) {
             GridSource source = entry.getGrid().getSource();
 
@@ -168,10 +361,51 @@ public class HologramUpdater extends Thread implements InterruptibleThread {
         } else {
             spawnHologramToAll(entry);
         }
+
+        if (entry.broadcast && !entry.spawn) {
+            plugin.getRefreshScheduler().onRendered(entry.hologram, entry.renderHash);
+        }
+    }
+
+    /**
+     * Makes the range the current range of the entity, the previous range is released after the update is sent
+     */
+    private static void assignIds(UpdateEntry updateEntry, EntityEntry entityEntry, long[] ids) {
+        long[] old = entityEntry.getReservedIds();
+        entityEntry.setReservedIds(ids);
+
+        if (old != null && old != ids) {
+            updateEntry.abandonedIds.add(old);
+        }
+    }
+
+    private void releaseUnusedIds(UpdateEntry entry) {
+        //replaced ranges were removed from the viewers only if the update reached all of them
+        if (entry.allViewers) {
+            for (long[] ids : entry.abandonedIds) {
+                idAllocator.release(ids);
+            }
+        }
+
+        //ranges reserved for this update which weren't sent to anyone
+        for (long[] ids : entry.reservedIds) {
+            boolean used = false;
+
+            for (EntityEntry entityEntry : entry.entityEntries) {
+                if (entityEntry.getReservedIds() == ids) {
+                    used = true;
+                    break;
+                }
+            }
+
+            if (!used) {
+                idAllocator.release(ids);
+            }
+        }
     }
 
     private void spawnHologramToAll(UpdateEntry updateEntry) {
-        List<List<String>> trans = addPlaceHolders(updateEntry.translations, updateEntry.getPlaceholders(), updateEntry.matchedPlaceholders);
+        List<List<String>> trans = addPlaceHolders(updateEntry.templates, updateEntry.getPlaceholders()::get);
 
         Hologram.GridSettings grid = updateEntry.getGrid();
         if ((trans.isEmpty() || trans.get(0).isEmpty()) && (!grid.isEnabled() || grid.getSource() == null || !grid.getSource().isLoaded())) {
@@ -184,10 +418,12 @@ public class HologramUpdater extends Thread implements InterruptibleThread {
             }
 
             for (int i = 0; i < trans.size(); i++) {
-                trans.set(i, GridFormatter.process(trans.get(i), grid));
+                trans.set(i, GridFormatter.process(trans.get(i), grid, updateEntry.hologram.getGridLayout(i)));
             }
         }
 
+        updateEntry.renderHash = trans.hashCode();
+
         //MainLogger.getLogger().info("origin size: "+updateEntry.translations.size()+"   after length: "+trans.size());
 
         /*if (trans.equals(updateEntry.getOldLines())) {
@@ -202,15 +438,38 @@ public class HologramUpdater extends Thread implements InterruptibleThread {
             Vector3 pos = entityEntry.getSafePos();
             long[] reservedIds = updateEntry.entityIds[entityCount++];
 
+            //IDs of closed entities might be already reused
+            if (entityEntry.getEntity().closed) {
+                continue;
+            }
+
             List<List<AddEntityPacket>> cachedPackets = new ArrayList<>();
             List<RemoveEntityPacket> cachedRemovePackets = new ArrayList<>();
 
             if (updateEntry.spawn)
                 removePacketsToSend.addAll(entityEntry.getRemovePackets());
 
+            if (updateEntry.recache) {
+                entityEntry.clearSentLines();
+            }
+
             if (updateEntry.spawn) {
+                int transIndex = 0;
+
                 for (List<String> lines : trans) {
-                    cachedPackets.add(compile(lines, pos, reservedIds));
+                    List<AddEntityPacket> packets = entityEntry.getCachedPackets(transIndex, lines, pos, reservedIds);
+
+                    if (packets == null) {
+                        packets = compile(lines, pos, reservedIds);
+                    }
+
+                    cachedPackets.add(packets);
+
+                    for (int i = 0; i < lines.size(); i++) {
+                        markSent(entityEntry, updateEntry, transIndex, i, lines.get(i));
+                    }
+
+                    transIndex++;
                 }
             } else {
                 int transIndex = 0;
@@ -224,13 +483,24 @@ public class HologramUpdater extends Thread implements InterruptibleThread {
                     for (int i = 0; i < lines.size(); i++) {
                         String line = lines.get(i);
 
+                        //all viewers already see this text
+                        if (updateEntry.broadcast && entityEntry.isLineSent(transIndex, i, line)) {
+                            continue;
+                        }
+
+                        if (!updateEntry.isDirty(transIndex, i)) {
+                            continue;
+                        }
+
+                        markSent(entityEntry, updateEntry, transIndex, i, line);
+
                         SetEntityDataPacket pk = new SetEntityDataPacket();
                         pk.eid = reservedIds[idIndexOffset + i];
                         pk.metadata = new EntityMetadata()
                                 .putString(Entity.DATA_NAMETAG, line);
 
-                        //pk.encode();
-                        //pk.isEncoded = true;
+                        pk.encode();
+                        pk.isEncoded = true;
 
                         setData.add(pk);
                     }
@@ -277,24 +547,33 @@ public class HologramUpdater extends Thread implements InterruptibleThread {
                     RemoveEntityPacket rpk = new RemoveEntityPacket();
                     rpk.eid = id;
 
-                    //rpk.encode();
-                    //rpk.isEncoded = true;
+                    rpk.encode();
+                    rpk.isEncoded = true;
 
                     cachedRemovePackets.add(rpk);
                 }
 
-                entityEntry.cachePackets(cachedPackets);
-
 //                Collections.reverse(cachedRemovePackets);
 
 //                for (RemoveEntityPacket crp : cachedRemovePackets) {
 ////                    MainLogger.getLogger().info("cache remove: "+crp.eid);
 //                }
                 entityEntry.cacheRemovedPackets(cachedRemovePackets);
+                assignIds(updateEntry, entityEntry, reservedIds);
             }
 
-//            MainLogger.getLogger().info("cached packets: "+cachedPackets.size());
-            packetsToSend.addAll((List) cachedPackets);
+            if (updateEntry.spawn) {
+                entityEntry.cachePackets(cachedPackets, trans, pos, reservedIds);
+            }
+
+            //packets of all entities are grouped by translation
+            for (int i = 0; i < cachedPackets.size(); i++) {
+                if (i >= packetsToSend.size()) {
+                    packetsToSend.add(new ArrayList<>());
+                }
+
+                packetsToSend.get(i).addAll(cachedPackets.get(i));
+            }
         }
 
 //        MainLogger.getLogger().info("packets to send: "+packetsToSend);
@@ -379,25 +658,116 @@ public class HologramUpdater extends Thread implements InterruptibleThread {
 //
 //        MainLogger.getLogger().info(builder.toString());
 
-        for (PacketsEntry packetsEntry : packetsEntries) {
-            this.sendPackets(packetsEntry.packets.toArray(new DataPacket[0]), packetsEntry.players.toArray(new Player[0]));
+        for (int i = 0; i < packetsEntries.size(); i++) {
+            PacketsEntry packetsEntry = packetsEntries.get(i);
+
+            if (packetsEntry.packets.isEmpty()) {
+                continue;
+            }
+
+            DataPacket[] packets = packetsEntry.packets.toArray(new DataPacket[0]);
+            int lineCount = i < trans.size() ? trans.get(i).size() : 0;
+
+            for (Map.Entry<Set<Long>, List<Player>> lodEntry : splitByLod(updateEntry, packetsEntry.players, lineCount).entrySet()) {
+                Player[] players = lodEntry.getValue().toArray(new Player[0]);
+
+                if (!lodEntry.getKey().isEmpty()) {
+                    this.sendPackets(filterPackets(packets, lodEntry.getKey()), players);
+                } else if (updateEntry.spawn && plugin.getConfiguration().isAsyncBatch()) {
+                    this.batchPackets(players, packets, updateEntry.hologramId, i);
+                } else {
+                    this.sendPackets(packets, players);
+                }
+            }
+        }
+    }
+
+    /**
+     * Groups players by lines they shouldn't receive, players who see the whole hologram are grouped under an empty set
+     */
+    private static Map<Set<Long>, List<Player>> splitByLod(UpdateEntry entry, Collection<Player> players, int lineCount) {
+        Map<Set<Long>, List<Player>> groups = new LinkedHashMap<>();
+
+        for (Player p : players) {
+            Set<Long> hidden = getHiddenLines(entry, p, lineCount);
+
+            groups.computeIfAbsent(hidden != null ? hidden : Collections.emptySet(), h -> new ArrayList<>()).add(p);
+        }
+
+        return groups;
+    }
+
+    /**
+     * @param lineCount rendered line count of the hologram
+     * @return IDs of lines which the player shouldn't receive because they see only the title line, null if the player sees whole hologram
+     */
+    private static Set<Long> getHiddenLines(UpdateEntry entry, Player player, int lineCount) {
+        Set<Long> hidden = null;
+
+        for (int i = 0; i < entry.entityEntries.size(); i++) {
+            if (!entry.titleViewers.get(i).contains(player.getLoaderId())) {
+                continue;
+            }
+
+            long[] ids = entry.entityIds[i];
+            int title = Math.max(0, ids.length - lineCount); //top line
+
+            if (hidden == null) {
+                hidden = new HashSet<>();
+            }
+
+            for (int j = 0; j < ids.length; j++) {
+                if (j != title) {
+                    hidden.add(ids[j]);
+                }
+            }
+        }
+
+        return hidden;
+    }
+
+    private static DataPacket[] filterPackets(DataPacket[] packets, Set<Long> hidden) {
+        List<DataPacket> filtered = new ArrayList<>(packets.length);
+
+        for (DataPacket pk : packets) {
+            if (pk instanceof AddEntityPacket && hidden.contains(((AddEntityPacket) pk).entityRuntimeId)) {
+                continue;
+            }
+
+            if (pk instanceof SetEntityDataPacket && hidden.contains(((SetEntityDataPacket) pk).eid)) {
+                continue;
+            }
+
+            filtered.add(pk);
+        }
+
+        return filtered.toArray(new DataPacket[0]);
+    }
+
+    private void markSent(EntityEntry entityEntry, UpdateEntry updateEntry, int translation, int line, String text) {
+        if (updateEntry.broadcast) {
+            entityEntry.setSentLine(translation, line, text);
+        } else {
+            entityEntry.invalidateSentLine(translation, line, text);
         }
     }
 
     private void spawnToSeparatePlayers(Collection<PlayerEntry> playerEntries, UpdateEntry updateEntry) {
-        List<SinglePlayerEntry> packets = new ArrayList<>();
+        List<PlayerGroupEntry> packets = new ArrayList<>();
         Collection<EntityEntry> entityEntries = updateEntry.entityEntries;
 
         if (playerEntries.size() <= 0) {
             return;
         }
 
-        List<List<String>> trans = addPlaceHolders(updateEntry.translations, updateEntry.placeholders, updateEntry.matchedPlaceholders);
-        updateEntry.translations.clear();
-        updateEntry.translations.addAll(trans);
+        //players see different texts, so nothing is common for all viewers
+        for (EntityEntry entityEntry : entityEntries) {
+            entityEntry.clearSentLines();
+        }
 
-        for (PlayerEntry entry : playerEntries) {
-            packets.add(spawnHologramTo(entry, updateEntry, entityEntries));
+        //players with the same language and placeholder values see the same text, so it's rendered once per group
+        for (PlayerGroup group : groupPlayers(playerEntries, updateEntry.getPlayerPlaceholders())) {
+            packets.add(spawnHologramTo(group.representative, group.players, updateEntry, entityEntries));
         }
 
         for (EntityPacketEntry packetEntry : packets.get(0).packetEntries) {
@@ -420,8 +790,8 @@ public class HologramUpdater extends Thread implements InterruptibleThread {
                     RemoveEntityPacket rpk = new RemoveEntityPacket();
                     rpk.eid = id;
 
-                    //rpk.encode();
-                    //rpk.isEncoded = true;
+                    rpk.encode();
+                    rpk.isEncoded = true;
 
                     removePackets.add(rpk);
                 }
@@ -432,10 +802,11 @@ public class HologramUpdater extends Thread implements InterruptibleThread {
 //                    MainLogger.getLogger().info("cache remove2: "+crp.eid);
 //                }
                 entityEntry.cacheRemovedPackets(removePackets);
+                assignIds(updateEntry, entityEntry, updateEntry.entityIds[updateEntry.entityEntries.indexOf(entityEntry)]);
             }
         }
 
-        for (SinglePlayerEntry spe : packets) {
+        for (PlayerGroupEntry spe : packets) {
             List<RemoveEntityPacket> remove = new ArrayList<>();
             List<DataPacket> add = new ArrayList<>();
 
@@ -450,13 +821,56 @@ public class HologramUpdater extends Thread implements InterruptibleThread {
         }
 
 //        MainLogger.getLogger().info("packets: "+packets);
-        for (SinglePlayerEntry entry : packets) {
-            this.sendPackets(entry.sendPackets, entry.player);
+        for (PlayerGroupEntry entry : packets) {
+            if (entry.sendPackets.length == 0) {
+                continue;
+            }
+
+            for (Map.Entry<Set<Long>, List<Player>> lodEntry : splitByLod(updateEntry, entry.players, entry.lineCount).entrySet()) {
+                DataPacket[] sendPackets = lodEntry.getKey().isEmpty() ? entry.sendPackets : filterPackets(entry.sendPackets, lodEntry.getKey());
+
+                this.sendPackets(sendPackets, lodEntry.getValue().toArray(new Player[0]));
+            }
         }
     }
 
-    private SinglePlayerEntry spawnHologramTo(PlayerEntry playerEntry, UpdateEntry updateEntry, Collection<EntityEntry> entities) {
-        SinglePlayerEntry packetEntry = new SinglePlayerEntry(playerEntry.player);
+    private static List<PlayerGroup> groupPlayers(Collection<PlayerEntry> playerEntries, PlayerPlaceholderValues values) {
+        Map<Integer, List<PlayerGroup>> byHash = new HashMap<>();
+        List<PlayerGroup> groups = new ArrayList<>();
+
+        for (PlayerEntry entry : playerEntries) {
+            int row = values.getRow(entry.player.getId());
+            int hash = 31 * entry.language + (row >= 0 ? values.rowHash(row) : 0);
+
+            List<PlayerGroup> candidates = byHash.computeIfAbsent(hash, h -> new ArrayList<>(1));
+            PlayerGroup group = null;
+
+            //same hash doesn't have to mean the same values
+            for (PlayerGroup candidate : candidates) {
+                if (candidate.representative.language == entry.language && (candidate.row == row || (candidate.row >= 0 && row >= 0 && values.rowEquals(candidate.row, row)))) {
+                    group = candidate;
+                    break;
+                }
+            }
+
+            if (group == null) {
+                group = new PlayerGroup(entry, row);
+                candidates.add(group);
+                groups.add(group);
+            }
+
+            group.players.add(entry.player);
+        }
+
+        return groups;
+    }
+
+    /**
+     * @param playerEntry player whose language and placeholder values are used
+     * @param players     all players seeing the same text
+     */
+    private PlayerGroupEntry spawnHologramTo(PlayerEntry playerEntry, List<Player> players, UpdateEntry updateEntry, Collection<EntityEntry> entities) {
+        PlayerGroupEntry packetEntry = new PlayerGroupEntry(players);
 
         List<List<String>> rawTranslations = updateEntry.translations;
         Hologram.GridSettings grid = updateEntry.getGrid();
@@ -473,8 +887,15 @@ public class HologramUpdater extends Thread implements InterruptibleThread {
         List<String> lines;
 
         if (!rawTranslations.isEmpty()) {
-            List<String> old = rawTranslations.get(lang);
-            lines = replaceTranslation(old, updateEntry.getPlayerPlaceholders().get(playerEntry.player.getId()), updateEntry.matchedPlaceholders.get(lang));
+            Map<String, String> globalValues = updateEntry.getPlaceholders();
+            PlayerPlaceholderValues values = updateEntry.getPlayerPlaceholders();
+            int row = values.getRow(playerEntry.player.getId());
+
+            lines = replaceTranslation(updateEntry.templates.get(lang), raw -> {
+                String value = row >= 0 ? values.get(row, raw) : null;
+
+                return value != null ? value : globalValues.get(raw);
+            });
         } else {
             lines = new ArrayList<>();
         }
@@ -487,6 +908,9 @@ public class HologramUpdater extends Thread implements InterruptibleThread {
             return packetEntry;
         }
 
+        packetEntry.lineCount = lines.size();
+        updateEntry.renderHash = 31 * updateEntry.renderHash + lines.hashCode();
+
         List<List<String>> oldLines = updateEntry.getOldLines();
 
         if (oldLines != null && oldLines.size() > lang && lines.equals(oldLines.get(lang))) {
@@ -496,6 +920,10 @@ public class HologramUpdater extends Thread implements InterruptibleThread {
         int entityCount = 0;
         for (EntityEntry entityEntry : entities) {
             long[] reservedIds = updateEntry.entityIds[entityCount++];
+
+            if (entityEntry.getEntity().closed) {
+                continue;
+            }
             List<RemoveEntityPacket> reps = entityEntry.getRemovePackets();
 
             Vector3 pos = entityEntry.getSafePos();
@@ -507,13 +935,18 @@ public class HologramUpdater extends Thread implements InterruptibleThread {
 
                 int i = 0;
                 for (RemoveEntityPacket rep : reps) {
+                    if (!updateEntry.isDirty(lang, i)) {
+                        i++;
+                        continue;
+                    }
+
                     SetEntityDataPacket pk = new SetEntityDataPacket();
                     pk.eid = rep.eid;
                     pk.metadata = new EntityMetadata()
                             .putString(Entity.DATA_NAMETAG, lines.get(i++));
 
-                    //pk.encode();
-                    //pk.isEncoded = true;
+                    pk.encode();
+                    pk.isEncoded = true;
 
                     packets.add(pk);
                 }
@@ -535,55 +968,25 @@ public class HologramUpdater extends Thread implements InterruptibleThread {
         return packetEntry;
     }
 
-    private List<List<String>> addPlaceHolders(List<List<String>> data, Map<String, String> placeHolders, List<List<List<MatchedPlaceholder>>> matched) {
-        List<List<String>> trans = new ArrayList<>(data.size());
+    private List<List<String>> addPlaceHolders(List<List<LineTemplate>> templates, Function<String, String> values) {
+        List<List<String>> trans = new ArrayList<>(templates.size());
 
-        int i = 0;
-        for (List<String> translation : data) {
-            trans.add(replaceTranslation(translation, placeHolders, matched.get(i++)));
+        for (List<LineTemplate> translation : templates) {
+            trans.add(replaceTranslation(translation, values));
         }
 
         return trans;
     }
 
-    private List<String> replaceTranslation(List<String> translation, Map<String, String> placeHolders, List<List<MatchedPlaceholder>> matched) {
+    /**
+     * Renders all lines of the translation, this method is called from the render worker
+     */
+    private List<String> replaceTranslation(List<LineTemplate> translation, Function<String, String> values) {
+        StringBuilder builder = LINE_BUILDER.get();
         List<String> replaced = new ArrayList<>(translation.size());
 
-        for (int i = 0; i < translation.size(); i++) {
-            String line = translation.get(i);
-
-            List<MatchedPlaceholder> transMatched = matched.get(i);
-
-            if (transMatched.isEmpty()) {
-                replaced.add(line);
-                continue;
-            }
-
-//            StringBuilder rowBuilder = new StringBuilder(line);
-//            int offset = 0;
-
-            for (int j = 0; j < transMatched.size(); j++) {
-                MatchedPlaceholder rowMatched = transMatched.get(j);
-
-                String replacement = placeHolders.get(rowMatched.raw);
-
-                if (replacement == null) {
-//                    rowMatched.offset = offset;
-                    continue;
-                }
-
-                line = line.replace(rowMatched.raw, replacement);
-
-//                int start = rowBuilder.indexOf(find);
-//
-//                if(start != -1) {
-//                    rowBuilder.replace(start, start + find.length(), find);
-//                }
-//                rowBuilder.replace(rowMatched.offset + offset + rowMatched.start, rowMatched.offset + offset + rowMatched.end, replacement);
-//                offset += replacement.length() - (rowMatched.end - rowMatched.start);
-            }
-
-            replaced.add(line);
+        for (LineTemplate template : translation) {
+            replaced.add(template.render(values, builder));
         }
 
         return replaced;
@@ -597,7 +1000,7 @@ public class HologramUpdater extends Thread implements InterruptibleThread {
             return packets;
         }
 
-        lines = Lists.reverse(new ArrayList<>(lines));
+        lines = Lists.reverse(lines);
 //        MainLogger.getLogger().info("reversed: "+lines);
 
         int i = 0;
@@ -623,24 +1026,12 @@ public class HologramUpdater extends Thread implements InterruptibleThread {
             pk.speedZ = 0;
             pk.yaw = 0;
             pk.pitch = 0;
-            pk.metadata = new EntityData()
-                    .putLong(Entity.DATA_FLAGS, (
-                            (1L << Entity.DATA_FLAG_CAN_SHOW_NAMETAG) |
-                                    (1L << Entity.DATA_FLAG_ALWAYS_SHOW_NAMETAG) |
-                                    (1L << Entity.DATA_FLAG_IMMOBILE) |
-                                    (1L << Entity.DATA_FLAG_SILENT)
-//                            (1L << Entity.DATA_FLAG_INVISIBLE)
-                    ))
-                    .putFloat(Entity.DATA_BOUNDING_BOX_HEIGHT, 0)
-                    .putFloat(Entity.DATA_BOUNDING_BOX_WIDTH, 0)
-                    .putFloat(Entity.DATA_SCALE, 0f)
-//            .putFloat(Entity.DATA_HEALTH, 100)
-                    .putLong(Entity.DATA_LEAD_HOLDER_EID, -1)
-                    .putByte(Entity.DATA_ALWAYS_SHOW_NAMETAG, 1).putString(Entity.DATA_NAMETAG, line);
+            pk.metadata = METADATA_TEMPLATE.create(line);
             pk.attributes = DEFAULT_ATTRIBUTES;
 
-            //pk.encode();
-            //pk.isEncoded = true;
+            //encoded by the render worker, so the main thread only sends it
+            pk.encode();
+            pk.isEncoded = true;
 
 //            MainLogger.getLogger().info("compiling packet with ID: "+id+", line: "+line);
             packets.add(pk);
@@ -660,38 +1051,167 @@ public class HologramUpdater extends Thread implements InterruptibleThread {
      * @param players
      */
     public void update(Hologram hologram, List<List<String>> oldLines, List<EntityEntry> entityEntries, boolean spawn, Player... players) {
-        Set<Player> pls = new HashSet<>(Arrays.asList(players));
-        if (pls.isEmpty()) {
-            for (EntityEntry entity : hologram.getEntities()) {
-                pls.addAll(entity.getEntity().getViewers().values());
+        List<Player> stale = new ArrayList<>();
+        Collection<Player> pls = players.length == 0 ? getViewers(hologram, spawn, stale) : new HashSet<>(Arrays.asList(players));
+
+        update(hologram, oldLines, entityEntries, spawn, pls, players.length == 0, null, players.length == 0 && stale.isEmpty(), stale);
+    }
+
+    public void update(Hologram hologram, List<List<String>> oldLines, List<EntityEntry> entityEntries, boolean spawn, Collection<Player> players) {
+        update(hologram, oldLines, entityEntries, spawn, players, false, null, false, Collections.emptyList());
+    }
+
+    /**
+     * Sends only the given lines of the hologram, used after a value of a placeholder on these lines has changed
+     * This method is called from the main thread
+     *
+     * @param lines indices of the changed lines
+     */
+    public void updateLines(Hologram hologram, TranslationLines lines, Player... players) {
+        List<Player> stale = new ArrayList<>();
+        Collection<Player> pls = players.length == 0 ? getViewers(hologram, false, stale) : new HashSet<>(Arrays.asList(players));
+
+        update(hologram, hologram.getRawTranslations(), hologram.getEntities(), false, pls, players.length == 0, lines.copy(), players.length == 0 && stale.isEmpty(), stale);
+    }
+
+    /**
+     * Shows the player's new translation of the hologram entities, texts are taken from the last render of the translation
+     * so only entity data is sent without rendering the holograms again
+     * This method is called from the main thread
+     *
+     * @param entities entities spawned to the player
+     */
+    public void changeLanguage(Player player, Collection<HologramEntity> entities) {
+        int language = plugin.getLanguage(player);
+        Map<Hologram, LanguageEntry> entries = new LinkedHashMap<>();
+
+        for (HologramEntity entity : entities) {
+            Hologram hologram = entity.getHologram();
+
+            if (entity.closed || hologram == null || entity.getEntityEntry() == null) {
+                continue;
+            }
+
+            List<HologramTranslation> translations = hologram.getTranslationList();
+            int translation = language >= 0 && language < translations.size() ? language : 0;
+
+            //grid rows and per player texts aren't shared between viewers
+            if (translations.isEmpty() || hologram.isVisitorSensitive() || hologram.getGridSettings().isEnabled()) {
+                update(hologram, hologram.getRawTranslations(), Collections.singletonList(entity.getEntityEntry()), false, player);
+                continue;
             }
+
+            LanguageEntry entry = entries.computeIfAbsent(hologram, h -> new LanguageEntry(h.getName(), h, player, translation, translations.get(translation).getLineCount()));
+            entry.entityEntries.add(entity.getEntityEntry());
+            entry.titleOnly.add(entity.getTitleViewers().contains(player.getLoaderId()));
         }
 
-        update(hologram, oldLines, entityEntries, spawn, pls);
+        entries.values().forEach(this::submit);
     }
 
-    public void update(Hologram hologram, List<List<String>> oldLines, List<EntityEntry> entityEntries, boolean spawn, Collection<Player> players) {
+    /**
+     * @param stale filled with viewers which were left out because they are beyond the refresh distance
+     */
+    private static Set<Player> getViewers(Hologram hologram, boolean spawn, Collection<Player> stale) {
+        Set<Player> players = new HashSet<>();
+
+        for (EntityEntry entity : hologram.getEntities()) {
+            Entity e = entity.getEntity();
+
+            for (Player p : e.getViewers().values()) {
+                //viewers beyond the refresh distance are updated once they come closer
+                if (spawn || !(e instanceof HologramEntity) || ((HologramEntity) e).isRefreshed(p)) {
+                    players.add(p);
+                } else {
+                    stale.add(p);
+                }
+            }
+        }
+
+        return players;
+    }
+
+    /**
+     * Captures snapshot of the hologram entities and viewers, everything else is prepared by the render worker
+     *
+     * @param broadcast  true if the players are all viewers of the hologram
+     * @param dirtyLines indices of lines which should be sent, null to send all changed lines
+     * @param allViewers   true if the players are all players the entities are spawned to
+     * @param staleViewers viewers left out of the update, they are added if the hologram has to be respawned
+     */
+    private void update(Hologram hologram, List<List<String>> oldLines, List<EntityEntry> entityEntries, boolean spawn, Collection<Player> players, boolean broadcast, TranslationLines dirtyLines, boolean allViewers, Collection<Player> staleViewers) {
         if (players.isEmpty() || entityEntries.isEmpty()) {
             return;
         }
 
         Hologram.GridSettings gridSettings = hologram.getGridSettings().clone();
 
-        List<List<String>> translations = hologram.getRawTranslations();
-        if (translations.isEmpty() && (!gridSettings.isEnabled() || gridSettings.getSource() == null)) {
+        GridSource gridSource = gridSettings.getSource();
+        if (gridSource != null) {
+            if (gridSource.getAllowedCallType() == GridSource.CallType.SYNC) {
+                gridSource.load();
+
+                gridSettings.setGridSource(new LoadedGridSource(gridSource));
+            }
+        }
+
+        entityEntries = new ArrayList<>(entityEntries);
+        List<Vector3> positions = new ArrayList<>(entityEntries.size());
+        List<Set<Long>> titleViewers = new ArrayList<>(entityEntries.size());
+
+        for (EntityEntry entityEntry : entityEntries) {
+            Entity e = entityEntry.getEntity();
+
+            positions.add(new Vector3(e.x, e.y, e.z));
+            titleViewers.add(e instanceof HologramEntity ? new HashSet<>(((HologramEntity) e).getTitleViewers()) : Collections.emptySet());
+        }
+
+        UpdateEntry entry = new UpdateEntry(
+                hologram.getName(),
+                hologram,
+                spawn,
+                broadcast,
+                gridSettings,
+                oldLines,
+                entityEntries,
+                positions,
+                titleViewers,
+                new ArrayList<>(players)
+        );
+        entry.dirtyLines = dirtyLines;
+        entry.allViewers = allViewers;
+        entry.staleViewers = new ArrayList<>(staleViewers);
+
+        if (!plugin.getPlaceholderAdapter().isThreadSafe()) {
+            entry.resolvePlayers(plugin);
+            entry.resolvePlaceholders();
+        }
+
+        submitUpdate(entry);
+    }
+
+    /**
+     * Prepares the update for rendering, this method is called from the render worker
+     *
+     * @return false if there's nothing to render
+     */
+    private boolean prepare(UpdateEntry entry) {
+        Hologram hologram = entry.hologram;
+        Hologram.GridSettings gridSettings = entry.grid;
+
+        List<HologramTranslation> hologramTranslations = hologram.getTranslationList();
+        if (hologramTranslations.isEmpty() && (!gridSettings.isEnabled() || gridSettings.getSource() == null)) {
             //TODO: despawn probably?
-            return;
+            return false;
         }
 
-        List<List<List<MatchedPlaceholder>>> translationPlaceholders = hologram.getTranslationPlaceholders();
+        List<List<String>> translations = new ArrayList<>(hologramTranslations.size());
+        List<List<LineTemplate>> translationTemplates = new ArrayList<>(hologramTranslations.size());
 
-//        for (List<List<PlaceholderAdapter.MatchedPlaceholder>> translationPlaceholder : translationPlaceholders) {
-//            for (List<PlaceholderAdapter.MatchedPlaceholder> placeholders : translationPlaceholder) {
-//                for (int i = 0; i < placeholders.size(); i++) {
-//                    placeholders.set(i, placeholders.get(i).clone());
-//                }
-//            }
-//        }
+        for (HologramTranslation translation : hologramTranslations) {
+            translations.add(translation.getLines());
+            translationTemplates.add(translation.getTemplates());
+        }
 
         int transSize = translations.isEmpty() ? 0 : translations.get(0).size();
 
@@ -703,85 +1223,84 @@ public class HologramUpdater extends Thread implements InterruptibleThread {
             }
         }
 
-        List<RemoveEntityPacket> repks = entityEntries.get(0).getRemovePackets();
-
-        entityEntries = new ArrayList<>(entityEntries);
-        for (EntityEntry entityEntry : entityEntries) {
-            Entity e = entityEntry.getEntity();
-
-            entityEntry.setSafePos(new Vector3(e.x, e.y, e.z));
+        List<EntityEntry> entityEntries = entry.entityEntries;
+        for (int i = 0; i < entityEntries.size(); i++) {
+            entityEntries.get(i).setSafePos(entry.positions.get(i));
         }
 
+        long[] firstIds = entityEntries.get(0).getReservedIds();
+
         int arraySize = transSize;
-        long[][] entityIds = new long[entityEntries.size()][arraySize];
+        long[][] entityIds = new long[entityEntries.size()][];
 
-        boolean needRecompile = repks.size() != arraySize;
+        boolean needRecompile = (firstIds != null ? firstIds.length : 0) != arraySize;
 
         if (needRecompile) {
-            spawn = true;
-            for (int i = 0; i < entityIds.length; i++) {
-                for (int j = 0; j < arraySize; j++) {
-                    synchronized (Entity.idLock) {
-                        entityIds[i][j] = Entity.entityCount++;
-                    }
+            entry.spawn = true;
+
+            //players beyond the refresh distance still see the old entities, so they have to be respawned too
+            if (!entry.staleViewers.isEmpty()) {
+                if (entry.players != null) {
+                    //players were resolved by the main thread, the respawn is captured there again including all viewers
+                    plugin.getServer().getScheduler().scheduleTask(plugin, () -> update(hologram, hologram.getRawTranslations(), hologram.getEntities(), true));
+                    return false;
                 }
-            }
-        } else {
-            for (int i = 0; i < entityIds.length; i++) {
-                EntityEntry entry = entityEntries.get(i);
-                List<RemoveEntityPacket> reps = entry.getRemovePackets();
 
-                if (reps.isEmpty() || reps.size() != arraySize) {
-                    for (int j = 0; j < arraySize; j++) {
-                        synchronized (Entity.idLock) {
-                            entityIds[i][j] = Entity.entityCount++;
-                        }
-                    }
-                } else {
-                    for (int j = 0; j < reps.size(); j++) {
-                        entityIds[i][j] = reps.get(j).eid;
-                    }
+                Map<Long, Player> viewers = new LinkedHashMap<>();
+                for (Player p : entry.viewers) {
+                    viewers.put(p.getId(), p);
+                }
+
+                for (Player p : entry.staleViewers) {
+                    viewers.put(p.getId(), p);
                 }
+
+                entry.viewers = new ArrayList<>(viewers.values());
+                entry.staleViewers = Collections.emptyList();
+                entry.allViewers = true;
             }
         }
 
-        List<PlayerEntry> playersData = new ArrayList<>(players.size());
+        int missing = 0;
 
-        for (Player p : players) {
-            playersData.add(new PlayerEntry(p, plugin.getLanguage(p)));
+        for (int i = 0; i < entityIds.length; i++) {
+            long[] ids = entityEntries.get(i).getReservedIds();
+
+            if (needRecompile || ids == null || ids.length != arraySize) {
+                missing++;
+            } else {
+                entityIds[i] = ids;
+            }
         }
 
-        GridSource gridSource = gridSettings.getSource();
-        if (gridSource != null) {
-            if (gridSource.getAllowedCallType() == GridSource.CallType.SYNC) {
-                gridSource.load();
+        if (missing > 0) {
+            long[][] reserved = idAllocator.reserve(missing, arraySize);
+            int reservedIndex = 0;
 
-                gridSettings.setGridSource(new LoadedGridSource(gridSource));
+            for (int i = 0; i < entityIds.length; i++) {
+                if (entityIds[i] == null) {
+                    entityIds[i] = reserved[reservedIndex++];
+                    entry.reservedIds.add(entityIds[i]);
+                }
             }
         }
 
-        synchronized (updateQueue) {
-            updateQueue.add(new UpdateEntry(
-                    hologram.getName(),
-                    hologram.isVisitorSensitive(),
-                    spawn, needRecompile,
-                    gridSettings,
-                    oldLines,
-                    translations,
-                    entityIds,
-                    entityEntries,
-                    playersData,
-                    hologram.updatePlaceholders(),
-                    hologram.updatePlayerPlaceholders(players),
-                    translationPlaceholders
-            ));
+        entry.visitorSensitive = hologram.isVisitorSensitive();
+        entry.recache = needRecompile;
+        entry.translations = translations;
+        entry.templates = translationTemplates;
+        entry.entityIds = entityIds;
+
+        if (entry.players == null) {
+            entry.resolvePlayers(plugin);
+            entry.resolvePlaceholders();
         }
+
+        return true;
     }
 
-    public void updatePos(EntityEntry entityEntry, Vector3 pos) {
-        synchronized (this.moveQueue) {
-            this.moveQueue.add(new MoveEntry(entityEntry, pos.clone(), new ArrayList<>(entityEntry.getEntity().getViewers().values())));
-        }
+    public void updatePos(Hologram hologram, EntityEntry entityEntry, Vector3 pos) {
+        submit(new MoveEntry(hologram.getName(), entityEntry, pos.clone(), new ArrayList<>(entityEntry.getEntity().getViewers().values())));
     }
 
     private void sendPackets(final DataPacket[] packets, final Player... players) {
@@ -790,67 +1309,216 @@ public class HologramUpdater extends Thread implements InterruptibleThread {
             return;
         }
 
-        plugin.getServer().getScheduler().scheduleTask(plugin, () -> {
-            Server server = plugin.getServer();
-
-            server.batchPackets(players, packets);
-        });
+        this.dispatcher.send(players, packets);
     }
 
     public void batchPackets(final Player[] players, final DataPacket[] packets) {
+        batchPackets(players, packets, null, 0);
+    }
+
+    /**
+     * Compresses packets to a single batch, spawn batches of the same content are reused from {@link BatchCache}
+     *
+     * @param hologramId hologram the packets belong to, null if the batch shouldn't be cached
+     * @param language   translation index of the packets
+     */
+    private void batchPackets(final Player[] players, final DataPacket[] packets, String hologramId, int language) {
         if (players == null || packets == null || players.length == 0 || packets.length == 0) {
             return;
         }
 
         try {
-            byte[][] payload = new byte[packets.length * 2][];
+            BatchPacket batch = hologramId != null ? batchCache.get(hologramId, language, packets) : null;
 
-            for (int i = 0; i < packets.length; i++) {
-                DataPacket p = packets[i];
-                /*if (!p.isEncoded) {
-                    p.encode();
-                }*/
-                byte[] buf = p.getBuffer();
-                payload[i * 2] = Binary.writeUnsignedVarInt(buf.length);
-                payload[i * 2 + 1] = buf;
-                packets[i] = null;
-            }
+            if (batch == null) {
+                byte[][] payload = new byte[packets.length * 2][];
 
-            BatchPacket batch = new BatchPacket();
-            batch.payload = Zlib.deflate(Binary.appendBytes(payload), 7);
+                for (int i = 0; i < packets.length; i++) {
+                    DataPacket p = packets[i];
+                    if (!p.isEncoded) {
+                        p.encode();
+                    }
+                    byte[] buf = p.getBuffer();
+                    payload[i * 2] = Binary.writeUnsignedVarInt(buf.length);
+                    payload[i * 2 + 1] = buf;
+                }
+
+                batch = new BatchPacket();
+                batch.payload = Zlib.deflate(Binary.appendBytes(payload), 7);
 
-            plugin.getServer().getScheduler().scheduleTask(plugin, () -> {
-                for (Player p : players) {
-                    p.dataPacket(batch);
+                if (hologramId != null) {
+                    batchCache.put(hologramId, language, packets, batch);
                 }
-            });
+            }
+
+            this.dispatcher.send(players, batch);
         } catch (Exception e) {
             MainLogger.getLogger().logException(e);
         }
     }
 
-    @AllArgsConstructor
     @Getter
     @ToString
-    private static class UpdateEntry {
+    private static class UpdateEntry implements QueueEntry {
 
+        //snapshot captured by the main thread
         private final String hologramId;
-        private final boolean visitorSensitive;
-        private final boolean spawn;
-        private final boolean recache;
-        private final Hologram.GridSettings grid;
+        private final Hologram hologram;
+        private boolean spawn;
+        private boolean broadcast;
+        private Hologram.GridSettings grid;
+
+        private List<List<String>> oldLines;
+
+        private List<EntityEntry> entityEntries;
+        private List<Vector3> positions;
+        private List<Set<Long>> titleViewers;
+        private Collection<Player> viewers;
+        private TranslationLines dirtyLines;
+
+        //true if the viewers are all players the hologram entities are spawned to
+        private boolean allViewers;
+        //viewers beyond the refresh distance left out of a broadcast
+        private Collection<Player> staleViewers = Collections.emptyList();
+
+        //resolved by the main thread only if placeholders can't be evaluated asynchronously
+        private Collection<PlayerEntry> players;
+        private Map<String, String> placeholders;
+        private PlayerPlaceholderValues playerPlaceholders;
+
+        //prepared by the render worker
+        private boolean visitorSensitive;
+        private boolean recache;
+        private List<List<String>> translations;
+        private long[][] entityIds;
+        private List<List<LineTemplate>> templates;
+
+        //ranges reserved for this update and ranges replaced by them
+        private final List<long[]> reservedIds = new ArrayList<>();
+        private final List<long[]> abandonedIds = new ArrayList<>();
+
+        //hash of the rendered lines, used to detect unchanged output
+        private int renderHash;
+
+        UpdateEntry(String hologramId, Hologram hologram, boolean spawn, boolean broadcast, Hologram.GridSettings grid,
+                    List<List<String>> oldLines, List<EntityEntry> entityEntries, List<Vector3> positions,
+                    List<Set<Long>> titleViewers, Collection<Player> viewers) {
+            this.hologramId = hologramId;
+            this.hologram = hologram;
+            this.spawn = spawn;
+            this.broadcast = broadcast;
+            this.grid = grid;
+            this.oldLines = oldLines;
+            this.entityEntries = entityEntries;
+            this.positions = positions;
+            this.titleViewers = titleViewers;
+            this.viewers = viewers;
+        }
 
-        private final List<List<String>> oldLines;
+        /**
+         * @return false if the line wasn't affected by the change which triggered this update
+         */
+        private boolean isDirty(int translation, int line) {
+            //grid rows don't match the source lines
+            return dirtyLines == null || grid.isEnabled() || dirtyLines.get(translation, line);
+        }
 
-        private final List<List<String>> translations;
-        private final long[][] entityIds;
-        private final Collection<EntityEntry> entityEntries;
+        private void resolvePlayers(Holograms plugin) {
+            List<PlayerEntry> players = new ArrayList<>(viewers.size());
 
-        private final Collection<PlayerEntry> players;
-        private Map<String, String> placeholders;
-        private Map<Long, Map<String, String>> playerPlaceholders;
-        private List<List<List<MatchedPlaceholder>>> matchedPlaceholders;
+            for (Player p : viewers) {
+                players.add(new PlayerEntry(p, plugin.getLanguage(p)));
+            }
+
+            this.players = players;
+        }
 
+        private void resolvePlaceholders() {
+            this.placeholders = hologram.updatePlaceholders();
+            this.playerPlaceholders = hologram.updatePlayerPlaceholders(viewers);
+        }
+
+        /**
+         * Merges newer update of the same hologram into this entry
+         *
+         * @param newer update queued after this one
+         */
+        private void merge(UpdateEntry newer) {
+            this.spawn |= newer.spawn;
+            //targeted viewers might not see lines already sent to everyone else
+            this.broadcast &= newer.broadcast;
+            this.allViewers |= newer.allViewers;
+            this.grid = newer.grid;
+
+            if (this.dirtyLines != null && newer.dirtyLines != null) {
+                this.dirtyLines.or(newer.dirtyLines);
+            } else {
+                this.dirtyLines = null;
+            }
+            this.oldLines = this.oldLines != null && newer.oldLines != null ? this.oldLines : null;
+
+            Map<Long, Player> viewers = new LinkedHashMap<>();
+            for (Player p : this.viewers) {
+                viewers.put(p.getId(), p);
+            }
+
+            for (Player p : newer.viewers) {
+                viewers.put(p.getId(), p);
+            }
+
+            this.viewers = new ArrayList<>(viewers.values());
+
+            if (!newer.staleViewers.isEmpty()) {
+                List<Player> staleViewers = new ArrayList<>(this.staleViewers);
+                staleViewers.addAll(newer.staleViewers);
+                this.staleViewers = staleViewers;
+            }
+
+            List<EntityEntry> entityEntries = new ArrayList<>(this.entityEntries);
+            List<Vector3> positions = new ArrayList<>(this.positions);
+            List<Set<Long>> titleViewers = new ArrayList<>(this.titleViewers);
+
+            for (int i = 0; i < newer.entityEntries.size(); i++) {
+                EntityEntry entityEntry = newer.entityEntries.get(i);
+                int index = entityEntries.indexOf(entityEntry);
+
+                if (index >= 0) {
+                    positions.set(index, newer.positions.get(i));
+                    titleViewers.set(index, newer.titleViewers.get(i));
+                } else {
+                    entityEntries.add(entityEntry);
+                    positions.add(newer.positions.get(i));
+                    titleViewers.add(newer.titleViewers.get(i));
+                }
+            }
+
+            this.entityEntries = entityEntries;
+            this.positions = positions;
+            this.titleViewers = titleViewers;
+
+            if (this.players == null || newer.players == null) {
+                return;
+            }
+
+            Map<Long, PlayerEntry> players = new LinkedHashMap<>();
+            for (PlayerEntry entry : this.players) {
+                players.put(entry.player.getId(), entry);
+            }
+
+            for (PlayerEntry entry : newer.players) {
+                players.put(entry.player.getId(), entry);
+            }
+
+            this.players = new ArrayList<>(players.values());
+            this.placeholders = newer.placeholders;
+
+            this.playerPlaceholders = this.playerPlaceholders.merge(newer.playerPlaceholders);
+        }
+    }
+
+    interface QueueEntry {
+
+        String getHologramId();
     }
 
     @AllArgsConstructor
@@ -870,13 +1538,25 @@ public class HologramUpdater extends Thread implements InterruptibleThread {
 
     @RequiredArgsConstructor
     @ToString
-    private static class SinglePlayerEntry {
+    private static class PlayerGroup {
 
-        private final Player player;
+        private final PlayerEntry representative;
+        private final int row;
+
+        private final List<Player> players = new ArrayList<>();
+    }
+
+    @RequiredArgsConstructor
+    @ToString
+    private static class PlayerGroupEntry {
+
+        private final List<Player> players;
 
         private final List<EntityPacketEntry> packetEntries = new ArrayList<>();
 
-        private DataPacket[] sendPackets;
+        private DataPacket[] sendPackets = new DataPacket[0];
+
+        private int lineCount;
     }
 
     @RequiredArgsConstructor
@@ -891,7 +1571,42 @@ public class HologramUpdater extends Thread implements InterruptibleThread {
 
     @RequiredArgsConstructor
     @ToString
-    private static class MoveEntry {
+    private static class DespawnEntry implements QueueEntry {
+
+        @Getter
+        private final String hologramId;
+
+        private final EntityEntry entityEntry;
+        private final Player[] players;
+
+        //true if the entity was closed and its IDs can be reused
+        private final boolean release;
+    }
+
+    @RequiredArgsConstructor
+    @ToString
+    private static class LanguageEntry implements QueueEntry {
+
+        @Getter
+        private final String hologramId;
+        private final Hologram hologram;
+
+        private final Player player;
+        private final int translation;
+        private final int lineCount;
+
+        private final List<EntityEntry> entityEntries = new ArrayList<>();
+
+        //true if the player sees only the title line of the entity
+        private final List<Boolean> titleOnly = new ArrayList<>();
+    }
+
+    @RequiredArgsConstructor
+    @ToString
+    private static class MoveEntry implements QueueEntry {
+
+        @Getter
+        private final String hologramId;
 
         private final EntityEntry entityEntry;
         private final Vector3 pos;
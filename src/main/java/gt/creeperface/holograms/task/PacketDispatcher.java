@@ -0,0 +1,127 @@
+package gt.creeperface.holograms.task;
+
+import cn.nukkit.Player;
+import cn.nukkit.network.protocol.BatchPacket;
+import cn.nukkit.network.protocol.DataPacket;
+import cn.nukkit.scheduler.Task;
+import cn.nukkit.utils.MainLogger;
+import gt.creeperface.holograms.Holograms;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Collects packets produced by the render workers and sends them from the main thread once per tick
+ * Packets over the configured time or byte budget are left for the next tick
+ *
+ * @author CreeperFace
+ */
+public class PacketDispatcher extends Task {
+
+    private final Holograms plugin;
+
+    private final long timeBudget;
+    private final long byteBudget;
+
+    private final Queue<Outgoing> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+
+    private volatile long spilledTicks = 0;
+
+    /**
+     * @param timeBudget max time in milliseconds spent by sending per tick
+     * @param byteBudget max uncompressed bytes sent per tick, 0 means unlimited
+     */
+    public PacketDispatcher(Holograms plugin, double timeBudget, long byteBudget) {
+        this.plugin = plugin;
+        this.timeBudget = (long) (timeBudget * 1_000_000);
+        this.byteBudget = byteBudget;
+    }
+
+    /**
+     * Queues packets which will be batched together for all the players
+     * Packets are encoded by the calling render worker if they aren't yet, so their size counts to the byte budget
+     */
+    public void send(Player[] players, DataPacket[] packets) {
+        long bytes = 0;
+
+        for (DataPacket packet : packets) {
+            if (!packet.isEncoded) {
+                packet.encode();
+                packet.isEncoded = true;
+            }
+
+            bytes += packet.getCount();
+        }
+
+        add(new Outgoing(players, packets, null, bytes));
+    }
+
+    /**
+     * Queues already compressed batch
+     */
+    public void send(Player[] players, BatchPacket batch) {
+        add(new Outgoing(players, null, batch, batch.payload.length));
+    }
+
+    private void add(Outgoing outgoing) {
+        size.incrementAndGet();
+        queue.add(outgoing);
+    }
+
+    @Override
+    public void onRun(int currentTick) {
+        long start = System.nanoTime();
+        long bytes = 0;
+
+        Outgoing outgoing;
+        while ((outgoing = queue.poll()) != null) {
+            size.decrementAndGet();
+
+            try {
+                if (outgoing.batch != null) {
+                    for (Player p : outgoing.players) {
+                        p.dataPacket(outgoing.batch);
+                    }
+                } else {
+                    plugin.getServer().batchPackets(outgoing.players, outgoing.packets);
+                }
+            } catch (Exception e) {
+                MainLogger.getLogger().logException(e);
+            }
+
+            bytes += outgoing.bytes * outgoing.players.length;
+
+            if (System.nanoTime() - start >= timeBudget || (byteBudget > 0 && bytes >= byteBudget)) {
+                if (!queue.isEmpty()) {
+                    spilledTicks++;
+                }
+
+                break;
+            }
+        }
+    }
+
+    public int getQueueSize() {
+        return size.get();
+    }
+
+    /**
+     * @return how many ticks ended with packets left for the next tick
+     */
+    public long getSpilledTicks() {
+        return spilledTicks;
+    }
+
+    @RequiredArgsConstructor
+    private static class Outgoing {
+
+        private final Player[] players;
+        private final DataPacket[] packets;
+        private final BatchPacket batch;
+
+        private final long bytes;
+    }
+}
@@ -0,0 +1,353 @@
+package gt.creeperface.holograms.task;
+
+import cn.nukkit.Player;
+import cn.nukkit.scheduler.Task;
+import gt.creeperface.holograms.Hologram;
+import gt.creeperface.holograms.Hologram.EntityEntry;
+import gt.creeperface.holograms.Holograms;
+import gt.creeperface.holograms.placeholder.TranslationLines;
+import lombok.Getter;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Runs automatic updates of holograms with an update interval
+ * Holograms without viewers are skipped and holograms which keep rendering the same output are updated less often
+ * <p>
+ * Next updates are kept in a hashed timing wheel, so only the due holograms are visited each tick
+ * and holograms with the same interval are spread across ticks by a phase derived from their name
+ * <p>
+ * Lines depending on changed placeholders are marked dirty and rendered together once the update interval
+ * has passed since the last render of the hologram. This only matters for holograms updated less often by the adaptive
+ * refresh, otherwise every interval renders all lines anyway and changes are not tracked
+ *
+ * @author CreeperFace
+ */
+public class RefreshScheduler extends Task {
+
+    private static final int MAX_UNCHANGED = 30;
+
+    private static final int WHEEL_SIZE = 512; //must be power of 2
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+    private final Holograms plugin;
+
+    private final boolean adaptive;
+    private final int maxBackoff;
+
+    private final Map<String, RefreshState> states = new ConcurrentHashMap<>();
+
+    //scheduled from other threads, inserted into the wheel by the main thread
+    private final Queue<RefreshState> pending = new ConcurrentLinkedQueue<>();
+
+    private final List<List<RefreshState>> wheel = new ArrayList<>(WHEEL_SIZE);
+
+    //holograms with dirty lines, accessed only by the main thread
+    private final Set<RefreshState> dirty = new LinkedHashSet<>();
+
+    private int lastTick = -1;
+
+    public RefreshScheduler(Holograms plugin, boolean adaptive, int maxBackoff) {
+        this.plugin = plugin;
+        this.adaptive = adaptive;
+        this.maxBackoff = Math.max(1, maxBackoff);
+
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            wheel.add(new ArrayList<>());
+        }
+    }
+
+    /**
+     * Starts or restarts automatic updates of the hologram
+     */
+    public void schedule(Hologram hologram) {
+        RefreshState state = new RefreshState(hologram);
+
+        states.put(hologram.getName(), state);
+        pending.add(state);
+    }
+
+    public void unschedule(Hologram hologram) {
+        states.computeIfPresent(hologram.getName(), (name, state) -> state.hologram == hologram ? null : state);
+    }
+
+    /**
+     * Marks lines of the hologram to be rendered at the next allowed update, must be called from the main thread
+     * Holograms without an update interval are not refreshed by placeholder changes
+     * and nothing is marked if the adaptive refresh is disabled, because all lines are rendered in every interval
+     *
+     * @param lines  lines depending on the changed placeholder
+     * @param player visitor whose value has changed, null if the value is global
+     */
+    public void markDirty(Hologram hologram, TranslationLines lines, Player player) {
+        if (!adaptive) {
+            return;
+        }
+
+        RefreshState state = states.get(hologram.getName());
+
+        if (state == null || state.hologram != hologram) {
+            return;
+        }
+
+        if (player == null) {
+            state.dirtyLines.or(lines);
+        } else {
+            state.dirtyPlayers.put(player.getLoaderId(), player);
+            state.dirtyPlayerLines.or(lines);
+        }
+
+        dirty.add(state);
+    }
+
+    @Override
+    public void onRun(int tick) {
+        RefreshState added;
+        while ((added = pending.poll()) != null) {
+            added.nextTick = tick + 1 + phase(added.hologram);
+            insert(added);
+        }
+
+        if (lastTick < 0 || tick - lastTick > WHEEL_SIZE) {
+            lastTick = tick - WHEEL_SIZE;
+        }
+
+        List<RefreshState> due = new ArrayList<>();
+
+        for (int t = lastTick + 1; t <= tick; t++) {
+            List<RefreshState> bucket = wheel.get(t & WHEEL_MASK);
+
+            for (int i = bucket.size() - 1; i >= 0; i--) {
+                RefreshState state = bucket.get(i);
+
+                if (state.nextTick <= tick) {
+                    bucket.set(i, bucket.get(bucket.size() - 1));
+                    bucket.remove(bucket.size() - 1);
+
+                    due.add(state);
+                }
+            }
+        }
+
+        lastTick = tick;
+
+        for (RefreshState state : due) {
+            Hologram hologram = state.hologram;
+
+            //unscheduled, rescheduled, removed or reloaded
+            if (states.get(hologram.getName()) != state) {
+                continue;
+            }
+
+            if (plugin.getHologram(hologram.getName()) != hologram) {
+                states.remove(hologram.getName(), state);
+                continue;
+            }
+
+            run(state, tick);
+            insert(state);
+        }
+
+        runDirty(tick);
+    }
+
+    private void runDirty(int tick) {
+        Iterator<RefreshState> iterator = dirty.iterator();
+
+        while (iterator.hasNext()) {
+            RefreshState state = iterator.next();
+            Hologram hologram = state.hologram;
+
+            if (states.get(hologram.getName()) != state || plugin.getHologram(hologram.getName()) != hologram) {
+                state.clearDirty();
+                iterator.remove();
+                continue;
+            }
+
+            if (tick - state.lastRunTick < hologram.getUpdateInterval()) {
+                continue;
+            }
+
+            iterator.remove();
+            state.lastRunTick = tick;
+
+            if (!hasViewers(hologram)) {
+                state.clearDirty();
+                continue;
+            }
+
+            if (!state.dirtyLines.isEmpty()) {
+                plugin.getHologramUpdater().updateLines(hologram, state.dirtyLines);
+            }
+
+            if (!state.dirtyPlayers.isEmpty()) {
+                List<Player> players = new ArrayList<>(state.dirtyPlayers.size());
+
+                for (Player player : state.dirtyPlayers.values()) {
+                    if (isViewer(hologram, player)) {
+                        players.add(player);
+                    }
+                }
+
+                if (!players.isEmpty()) {
+                    plugin.getHologramUpdater().updateLines(hologram, state.dirtyPlayerLines, players.toArray(new Player[0]));
+                }
+            }
+
+            state.clearDirty();
+        }
+    }
+
+    private void run(RefreshState state, int tick) {
+        Hologram hologram = state.hologram;
+        int interval = hologram.getUpdateInterval();
+
+        if (adaptive) {
+            if (!hasViewers(hologram)) {
+                state.decision = Decision.IDLE;
+                state.interval = interval;
+                state.nextTick = tick + interval;
+                return;
+            }
+
+            state.checkRender();
+
+            if (state.unchanged > 0) {
+                interval *= Math.min(1 << Math.min(state.unchanged, MAX_UNCHANGED), maxBackoff);
+            }
+
+            state.decision = interval > hologram.getUpdateInterval() ? Decision.BACKOFF : Decision.ACTIVE;
+        }
+
+        state.interval = interval;
+        state.nextTick = tick + interval;
+
+        //all lines are rendered again
+        state.lastRunTick = tick;
+        state.clearDirty();
+        dirty.remove(state);
+
+        plugin.getHologramUpdater().update(hologram, hologram.getRawTranslations(), hologram.getEntities(), false);
+    }
+
+    private void insert(RefreshState state) {
+        wheel.get(state.nextTick & WHEEL_MASK).add(state);
+    }
+
+    /**
+     * Deterministic offset of the first update within the hologram interval
+     */
+    private static int phase(Hologram hologram) {
+        int interval = Math.max(1, hologram.getUpdateInterval());
+        int hash = hologram.getName().hashCode() * 0x9E3779B9;
+
+        return Math.floorMod(hash ^ (hash >>> 16), interval);
+    }
+
+    /**
+     * Called by the render worker after the hologram was rendered to all its viewers
+     *
+     * @param hash hash of the rendered lines
+     */
+    void onRendered(Hologram hologram, int hash) {
+        RefreshState state = states.get(hologram.getName());
+
+        if (state != null && state.hologram == hologram) {
+            state.renderedHash = hash;
+            state.rendered = true;
+        }
+    }
+
+    public List<RefreshState> getStates() {
+        return new ArrayList<>(states.values());
+    }
+
+    private static boolean hasViewers(Hologram hologram) {
+        for (EntityEntry entry : hologram.getEntities()) {
+            if (!entry.getEntity().getViewers().isEmpty()) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean isViewer(Hologram hologram, Player player) {
+        for (EntityEntry entry : hologram.getEntities()) {
+            if (entry.getEntity().getViewers().containsKey(player.getLoaderId())) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    public enum Decision {
+        /**
+         * Updated in the configured interval
+         */
+        ACTIVE,
+        /**
+         * Updated less often because the output didn't change
+         */
+        BACKOFF,
+        /**
+         * Skipped because nobody can see the hologram
+         */
+        IDLE
+    }
+
+    public static class RefreshState {
+
+        @Getter
+        private final Hologram hologram;
+
+        @Getter
+        private int interval;
+        @Getter
+        private int unchanged = 0;
+        @Getter
+        private Decision decision = Decision.ACTIVE;
+
+        private int nextTick;
+        private int lastRunTick = Integer.MIN_VALUE / 2;
+
+        //lines to render for all viewers and for the visitors whose values have changed
+        private final TranslationLines dirtyLines = new TranslationLines();
+        private final TranslationLines dirtyPlayerLines = new TranslationLines();
+        private final Map<Long, Player> dirtyPlayers = new HashMap<>();
+
+        private int lastHash;
+        private volatile int renderedHash;
+        private volatile boolean rendered = false;
+
+        private RefreshState(Hologram hologram) {
+            this.hologram = hologram;
+            this.interval = hologram.getUpdateInterval();
+        }
+
+        private void clearDirty() {
+            dirtyLines.clear();
+            dirtyPlayerLines.clear();
+            dirtyPlayers.clear();
+        }
+
+        private void checkRender() {
+            if (!rendered) {
+                return;
+            }
+
+            rendered = false;
+            int hash = renderedHash;
+
+            if (hash == lastHash) {
+                unchanged = Math.min(unchanged + 1, MAX_UNCHANGED);
+            } else {
+                unchanged = 0;
+                lastHash = hash;
+            }
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package gt.creeperface.holograms.task;
+
+import cn.nukkit.InterruptibleThread;
+import cn.nukkit.Server;
+import cn.nukkit.utils.MainLogger;
+import lombok.Getter;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Single render thread of the {@link HologramUpdater} pool
+ * Entries of one hologram are always routed to the same worker, so they are processed in order
+ *
+ * @author CreeperFace
+ */
+public class RenderWorker extends Thread implements InterruptibleThread {
+
+    private static final long SHUTDOWN_TIMEOUT = 1000;
+
+    private final HologramUpdater updater;
+
+    @Getter
+    private final int index;
+
+    private final BlockingQueue<HologramUpdater.QueueEntry> queue = new LinkedBlockingQueue<>();
+
+    private volatile boolean running = true;
+
+    private volatile long idleTime = 0;
+    private volatile long busyTime = 0;
+    private volatile long processed = 0;
+
+    RenderWorker(HologramUpdater updater, int index) {
+        this.updater = updater;
+        this.index = index;
+
+        this.setDaemon(true);
+        this.setName("Hologram Updater #" + index);
+    }
+
+    @Override
+    public void run() {
+        while (running && Server.getInstance().isRunning()) {
+            HologramUpdater.QueueEntry entry;
+
+            long idleStart = System.nanoTime();
+            try {
+                entry = queue.take();
+            } catch (InterruptedException e) {
+                break;
+            }
+
+            long busyStart = System.nanoTime();
+            idleTime += busyStart - idleStart;
+
+            try {
+                updater.process(entry);
+            } catch (Throwable t) {
+                MainLogger.getLogger().error("Error occurred during updating holograms", t);
+            }
+
+            busyTime += System.nanoTime() - busyStart;
+            processed++;
+        }
+
+        queue.clear();
+    }
+
+    void submit(HologramUpdater.QueueEntry entry) {
+        queue.add(entry);
+    }
+
+    /**
+     * Stops the worker and waits until the currently processed entry is finished
+     * Pending entries are discarded
+     */
+    void shutdown() {
+        this.running = false;
+        this.interrupt();
+
+        try {
+            this.join(SHUTDOWN_TIMEOUT);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return time in milliseconds the worker spent waiting for work
+     */
+    public long getIdleTime() {
+        return idleTime / 1_000_000;
+    }
+
+    /**
+     * @return time in milliseconds the worker spent processing queued entries
+     */
+    public long getBusyTime() {
+        return busyTime / 1_000_000;
+    }
+
+    public long getProcessedCount() {
+        return processed;
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    /**
+     * @return processed entries per second of worker lifetime
+     */
+    public double getThroughput() {
+        long total = idleTime + busyTime;
+
+        if (total <= 0) {
+            return 0;
+        }
+
+        return processed / (total / 1_000_000_000d);
+    }
+}